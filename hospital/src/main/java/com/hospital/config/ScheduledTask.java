@@ -1,7 +1,10 @@
 // ScheduledTask.java
 package com.hospital.config;
 
+import com.hospital.service.AppointmentRollupService;
 import com.hospital.service.EmailService;
+import com.hospital.service.SlotCapacityService;
+import com.hospital.service.WaitlistService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -13,6 +16,9 @@ import org.springframework.stereotype.Component;
 public class ScheduledTask {
 
     private final EmailService emailService;
+    private final WaitlistService waitlistService;
+    private final SlotCapacityService slotCapacityService;
+    private final AppointmentRollupService appointmentRollupService;
 
     /**
      * 每小时清理过期验证码
@@ -22,4 +28,40 @@ public class ScheduledTask {
         log.info("开始清理过期验证码...");
         emailService.cleanExpiredCodes();
     }
+
+    /**
+     * 每小时将就诊时间已过的候补标记为过期
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    public void expireStaleWaitlistEntries() {
+        int expired = waitlistService.expireStaleEntries();
+        log.info("已将 {} 条候补记录标记为过期", expired);
+    }
+
+    /**
+     * 每5分钟恢复转正途中中断、停留在处理中的候补
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void recoverStaleWaitlistPromotions() {
+        int recovered = waitlistService.recoverStalePromotions();
+        if (recovered > 0) {
+            log.info("已恢复 {} 条转正中断的候补记录", recovered);
+        }
+    }
+
+    /**
+     * 每天凌晨滚动生成未来若干周的可预约日历
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void refreshAvailabilityCalendar() {
+        slotCapacityService.refreshCalendar();
+    }
+
+    /**
+     * 每天凌晨对账预约日汇总
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void reconcileAppointmentRollup() {
+        appointmentRollupService.reconcile();
+    }
 }
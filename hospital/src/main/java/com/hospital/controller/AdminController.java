@@ -2,11 +2,21 @@ package com.hospital.controller;
 
 import com.hospital.dto.*;
 import com.hospital.service.AdminService;
+import com.hospital.service.AppointmentExportService;
+import com.hospital.service.ReportJobService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -16,6 +26,8 @@ import java.util.List;
 public class AdminController {
     
     private final AdminService adminService;
+    private final ReportJobService reportJobService;
+    private final AppointmentExportService appointmentExportService;
 
     // ========== 医生信息管理 ==========
     
@@ -186,17 +198,125 @@ public class AdminController {
     @GetMapping("/stats/doctor-workload")
     public ResponseEntity<ApiResponse<List<AdminDoctorWorkloadDTO>>> getDoctorWorkload(
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) Integer limit) {
         try {
             LocalDate start = parseDate(startDate);
             LocalDate end = parseDate(endDate);
-            List<AdminDoctorWorkloadDTO> stats = adminService.getDoctorWorkload(start, end);
+            List<AdminDoctorWorkloadDTO> stats = adminService.getDoctorWorkload(start, end, sortBy, limit);
             return ResponseEntity.ok(ApiResponse.success("获取医生工作量统计成功", stats));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
 
+    @PostMapping("/stats/rollup/rebuild")
+    public ResponseEntity<ApiResponse<Integer>> rebuildAppointmentRollup(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        try {
+            LocalDate start = parseDate(startDate);
+            LocalDate end = parseDate(endDate);
+            int rows = adminService.rebuildAppointmentRollup(start, end);
+            return ResponseEntity.ok(ApiResponse.success("重建统计汇总成功", rows));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // ========== 报表任务 ==========
+
+    @PostMapping("/reports")
+    public ResponseEntity<ApiResponse<ReportJobDTO>> submitReportJob(@RequestBody ReportJobRequest request) {
+        try {
+            ReportJobDTO job = reportJobService.submit(request);
+            return ResponseEntity.ok(ApiResponse.success("报表任务已提交", job));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/reports/{jobId}")
+    public ResponseEntity<ApiResponse<ReportJobDTO>> getReportJob(@PathVariable String jobId) {
+        try {
+            ReportJobDTO job = reportJobService.getJob(jobId);
+            return ResponseEntity.ok(ApiResponse.success("获取报表任务成功", job));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 下载报表结果：容器支持 sendfile 时由 Tomcat 直接零拷贝发送文件，否则按普通文件响应
+    @GetMapping("/reports/{jobId}/download")
+    public ResponseEntity<?> downloadReport(@PathVariable String jobId,
+                                            HttpServletRequest request,
+                                            HttpServletResponse response) {
+        try {
+            Path file = reportJobService.getResultFile(jobId);
+            long length = Files.size(file);
+            String disposition = ContentDisposition.attachment().filename("report-" + jobId + ".json").build().toString();
+
+            if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition);
+                response.setContentLengthLong(length);
+                request.setAttribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString());
+                request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+                request.setAttribute("org.apache.tomcat.sendfile.end", length);
+                return null;
+            }
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .contentLength(length)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .body(new FileSystemResource(file));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // ========== 数据导出 ==========
+
+    // 按日期范围导出预约明细（CSV / NDJSON），可按医生或科室过滤，边查询边写出响应
+    @GetMapping("/export/appointments")
+    public ResponseEntity<?> exportAppointments(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(required = false) String format,
+            HttpServletResponse response) {
+        AppointmentExportService.ExportFormat exportFormat;
+        LocalDate start;
+        LocalDate end;
+        try {
+            exportFormat = appointmentExportService.resolveFormat(format);
+            start = parseDate(startDate);
+            end = parseDate(endDate);
+            appointmentExportService.validate(start, end);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+
+        try {
+            String filename = "appointments-" + start + "-" + end + "." + exportFormat.getExtension();
+            response.setContentType(exportFormat.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(filename).build().toString());
+            appointmentExportService.export(start, end, doctorId, departmentId, exportFormat, response.getOutputStream());
+        } catch (Exception e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                return ResponseEntity.badRequest().body(ApiResponse.error("导出预约数据失败: " + e.getMessage()));
+            }
+            // 响应已开始写出，无法再返回错误信息，只能中断连接
+            throw new RuntimeException("导出预约数据失败: " + e.getMessage(), e);
+        }
+        return null;
+    }
+
     private LocalDate parseDate(String value) {
         return value != null && !value.isBlank() ? LocalDate.parse(value) : null;
     }
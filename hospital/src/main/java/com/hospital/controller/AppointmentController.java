@@ -2,17 +2,27 @@ package com.hospital.controller;
 
 import com.hospital.dto.ApiResponse;
 import com.hospital.dto.AppointmentDTO;
+import com.hospital.dto.AppointmentPageDTO;
 import com.hospital.dto.AppointmentRequest;
+import com.hospital.dto.BatchAppointmentResultDTO;
+import com.hospital.dto.BookingTicketDTO;
 import com.hospital.entity.Appointment;
+import com.hospital.entity.WaitlistEntry;
 import com.hospital.service.AppointmentService;
+import com.hospital.service.BookingPipelineService;
+import com.hospital.service.IdempotencyService;
+import com.hospital.service.WaitlistService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/appointments")
@@ -20,17 +30,106 @@ import java.util.List;
 public class AppointmentController {
     
     private final AppointmentService appointmentService;
+    private final BookingPipelineService bookingPipelineService;
+    private final IdempotencyService idempotencyService;
+    private final WaitlistService waitlistService;
 
     @PostMapping
-    public ResponseEntity<ApiResponse<Appointment>> createAppointment(@RequestBody AppointmentRequest request) {
+    public ResponseEntity<ApiResponse<Appointment>> createAppointment(
+            @RequestBody AppointmentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Appointment appointment = appointmentService.createAppointment(request);
+            // 携带幂等键的重试请求直接返回首次创建的预约
+            Appointment appointment = StringUtils.hasText(idempotencyKey)
+                    ? idempotencyService.execute("appointment:" + idempotencyKey, request,
+                            () -> appointmentService.createAppointment(request))
+                    : appointmentService.createAppointment(request);
             return ResponseEntity.ok(ApiResponse.success("预约创建成功", appointment));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
 
+    // 批量创建预约（前台批量挂号、转诊导入），逐条返回处理结果
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchAppointmentResultDTO>>> createAppointments(
+            @RequestBody List<AppointmentRequest> requests) {
+        try {
+            List<BatchAppointmentResultDTO> results = appointmentService.createAppointments(requests);
+            return ResponseEntity.ok(ApiResponse.success("批量预约处理完成", results));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 通过按医生串行的排队通道创建预约，处理完成后返回结果
+    @PostMapping("/queued")
+    public CompletableFuture<ResponseEntity<ApiResponse<Appointment>>> createAppointmentQueued(
+            @RequestBody AppointmentRequest request) {
+        try {
+            return bookingPipelineService.submit(request)
+                    .thenApply(appointment -> ResponseEntity.ok(ApiResponse.success("预约创建成功", appointment)))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        return ResponseEntity.badRequest().body(ApiResponse.<Appointment>error(cause.getMessage()));
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage())));
+        }
+    }
+
+    // 提交排队预约，返回可轮询的凭证
+    @PostMapping("/tickets")
+    public ResponseEntity<ApiResponse<BookingTicketDTO>> submitAppointmentTicket(@RequestBody AppointmentRequest request) {
+        try {
+            BookingTicketDTO ticket = bookingPipelineService.submitForTicket(request);
+            return ResponseEntity.ok(ApiResponse.success("预约已进入排队", ticket));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<ApiResponse<BookingTicketDTO>> getAppointmentTicket(@PathVariable String ticketId) {
+        try {
+            BookingTicketDTO ticket = bookingPipelineService.getTicket(ticketId);
+            return ResponseEntity.ok(ApiResponse.success("获取排队状态成功", ticket));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 号源已满时登记候补，有患者取消后自动转为预约并邮件通知
+    @PostMapping("/waitlist")
+    public ResponseEntity<ApiResponse<WaitlistEntry>> joinWaitlist(@RequestBody AppointmentRequest request) {
+        try {
+            WaitlistEntry entry = waitlistService.joinWaitlist(request);
+            return ResponseEntity.ok(ApiResponse.success("候补登记成功", entry));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/waitlist/patient/{patientId}")
+    public ResponseEntity<ApiResponse<List<WaitlistEntry>>> getPatientWaitlist(@PathVariable Long patientId) {
+        try {
+            List<WaitlistEntry> entries = waitlistService.getWaitlistByPatientId(patientId);
+            return ResponseEntity.ok(ApiResponse.success("获取候补记录成功", entries));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/waitlist/{id}/cancel")
+    public ResponseEntity<ApiResponse<WaitlistEntry>> cancelWaitlistEntry(@PathVariable Long id) {
+        try {
+            WaitlistEntry entry = waitlistService.cancelWaitlistEntry(id);
+            return ResponseEntity.ok(ApiResponse.success("候补取消成功", entry));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<Appointment>> getAppointment(@PathVariable Long id) {
         try {
@@ -61,6 +160,42 @@ public class AppointmentController {
         }
     }
 
+    // 游标分页获取患者预约，cursor 取上一页返回的 nextCursor
+    @GetMapping("/patient/{patientId}/page")
+    public ResponseEntity<ApiResponse<AppointmentPageDTO>> getPatientAppointmentPage(
+            @PathVariable Long patientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Appointment.AppointmentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            AppointmentPageDTO page = appointmentService.getPatientAppointmentPage(
+                    patientId, cursor, size, status, startDate, endDate);
+            return ResponseEntity.ok(ApiResponse.success("获取患者预约成功", page));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 游标分页获取医生预约，cursor 取上一页返回的 nextCursor
+    @GetMapping("/doctor/{doctorId}/page")
+    public ResponseEntity<ApiResponse<AppointmentPageDTO>> getDoctorAppointmentPage(
+            @PathVariable Long doctorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Appointment.AppointmentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            AppointmentPageDTO page = appointmentService.getDoctorAppointmentPage(
+                    doctorId, cursor, size, status, startDate, endDate);
+            return ResponseEntity.ok(ApiResponse.success("获取医生预约成功", page));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @PostMapping("/{id}/cancel")
     public ResponseEntity<ApiResponse<Appointment>> cancelAppointment(
             @PathVariable Long id, 
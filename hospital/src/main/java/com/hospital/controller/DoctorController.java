@@ -47,9 +47,11 @@ public class DoctorController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<DoctorDTO>>> searchDoctors(@RequestParam String keyword) {
+    public ResponseEntity<ApiResponse<List<DoctorDTO>>> searchDoctors(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Integer limit) {
         try {
-            List<DoctorDTO> doctors = doctorService.searchDoctors(keyword);
+            List<DoctorDTO> doctors = doctorService.searchDoctors(keyword, limit);
             return ResponseEntity.ok(ApiResponse.success("搜索医生成功", doctors));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
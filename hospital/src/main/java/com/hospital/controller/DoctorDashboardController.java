@@ -2,10 +2,14 @@ package com.hospital.controller;
 
 import com.hospital.dto.*;
 import com.hospital.service.DoctorDashboardService;
+import com.hospital.service.LiveQueueService;
+import com.hospital.service.QueueStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
@@ -18,6 +22,8 @@ import java.util.List;
 public class DoctorDashboardController {
     
     private final DoctorDashboardService doctorDashboardService;
+    private final QueueStreamService queueStreamService;
+    private final LiveQueueService liveQueueService;
 
     // 获取本周排班
     @GetMapping("/schedules")
@@ -45,6 +51,52 @@ public class DoctorDashboardController {
         }
     }
 
+    // 订阅就诊队列推送（SSE）：先推送 snapshot 事件，之后推送 delta 事件
+    @GetMapping(value = "/appointments/queue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAppointmentQueue(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime appointmentTime) {
+        try {
+            return queueStreamService.subscribe(doctorId, appointmentTime);
+        } catch (Exception e) {
+            SseEmitter emitter = new SseEmitter();
+            try {
+                emitter.send(SseEmitter.event().name("error").data(ApiResponse.error(e.getMessage())));
+                emitter.complete();
+            } catch (Exception sendError) {
+                emitter.completeWithError(sendError);
+            }
+            return emitter;
+        }
+    }
+
+    // 获取实时候诊队列（内存队列，不查询数据库）
+    @GetMapping("/appointments/live-queue")
+    public ResponseEntity<ApiResponse<LiveQueueDTO>> getLiveQueue(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime appointmentTime) {
+        try {
+            LiveQueueDTO queue = liveQueueService.getQueue(doctorId, appointmentTime);
+            return ResponseEntity.ok(ApiResponse.success("获取实时队列成功", queue));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // 叫号：完成当前患者并叫下一位
+    @PostMapping("/appointments/live-queue/call-next")
+    public ResponseEntity<ApiResponse<AppointmentQueueDTO>> callNextPatient(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime appointmentTime) {
+        try {
+            AppointmentQueueDTO next = liveQueueService.callNext(doctorId, appointmentTime);
+            String message = next != null ? "叫号成功" : "队列中已没有候诊患者";
+            return ResponseEntity.ok(ApiResponse.success(message, next));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     // 发送就诊提醒
     @PostMapping("/appointments/{appointmentId}/remind")
     public ResponseEntity<ApiResponse<Void>> sendAppointmentReminder(@PathVariable Long appointmentId) {
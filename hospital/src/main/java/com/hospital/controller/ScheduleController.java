@@ -31,6 +31,20 @@ public class ScheduleController {
         }
     }
 
+    // 一次返回医生在日期范围内的30分钟时间段网格，供周视图使用
+    @GetMapping("/slot-grid")
+    public ResponseEntity<ApiResponse<List<TimeSlotDTO>>> getSlotGrid(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            List<TimeSlotDTO> grid = scheduleService.getSlotGrid(doctorId, startDate, endDate);
+            return ResponseEntity.ok(ApiResponse.success("获取时间段网格成功", grid));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @GetMapping("/available-dates")
     public ResponseEntity<ApiResponse<List<LocalDate>>> getAvailableDates(
             @RequestParam Long departmentId,
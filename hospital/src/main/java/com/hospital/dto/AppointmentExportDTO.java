@@ -0,0 +1,18 @@
+package com.hospital.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class AppointmentExportDTO {
+    private Long appointmentId;
+    private LocalDateTime appointmentTime;
+    private String status;
+    private Long doctorId;
+    private String doctorName;
+    private Long departmentId;
+    private String departmentName;
+    private Long patientId;
+    private String patientName;
+    private String notes;
+}
@@ -0,0 +1,11 @@
+package com.hospital.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class AppointmentPageDTO {
+    private List<AppointmentDTO> items;
+    private String nextCursor; // 下一页游标，没有更多数据时为空
+    private Boolean hasMore;
+}
@@ -14,6 +14,8 @@ public class AppointmentQueueDTO {
     private LocalDateTime appointmentTime;
     private Appointment.AppointmentStatus status;
     private Integer queuePosition; // 排队位置（前面还有几人）
+    private Integer estimatedWaitMinutes; // 预计等待分钟数
+    private LocalDateTime estimatedStartTime; // 预计开始就诊时间
     private String notes;
 }
 
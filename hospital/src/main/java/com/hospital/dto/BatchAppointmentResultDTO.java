@@ -0,0 +1,12 @@
+package com.hospital.dto;
+
+import com.hospital.entity.Appointment;
+import lombok.Data;
+
+@Data
+public class BatchAppointmentResultDTO {
+    private Integer index; // 对应请求列表中的位置
+    private Boolean success;
+    private String message;
+    private Appointment appointment;
+}
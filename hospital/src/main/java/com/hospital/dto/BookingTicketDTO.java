@@ -0,0 +1,22 @@
+package com.hospital.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class BookingTicketDTO {
+    private String ticketId;
+    private Long doctorId;
+    private LocalDateTime appointmentTime;
+    private TicketStatus status;
+    private Long appointmentId;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    public enum TicketStatus {
+        QUEUED,     // 排队中
+        ACCEPTED,   // 预约成功
+        REJECTED    // 预约失败
+    }
+}
@@ -0,0 +1,15 @@
+package com.hospital.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class LiveQueueDTO {
+    private Long doctorId;
+    private LocalDateTime blockStart;
+    private LocalDateTime blockEnd;
+    private AppointmentQueueDTO current; // 正在就诊的患者
+    private List<AppointmentQueueDTO> waiting; // 候诊患者（按预约时间排序）
+    private Integer completedCount; // 本时段已完成就诊人数
+}
@@ -0,0 +1,18 @@
+package com.hospital.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class QueueDeltaDTO {
+    private DeltaType type;
+    private Long appointmentId;
+    private AppointmentQueueDTO entry; // 新增或更新后的队列项，移除时为空；客户端按预约时间排序重新计算排队位置
+    private LocalDateTime occurredAt;
+
+    public enum DeltaType {
+        ADDED,      // 新预约进入队列
+        UPDATED,    // 预约状态变化（确认、完成）
+        REMOVED     // 预约取消，移出队列
+    }
+}
@@ -0,0 +1,30 @@
+package com.hospital.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class ReportJobDTO {
+    private String jobId;
+    private ReportType type;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private JobStatus status;
+    private String message;
+    private Long fileSize;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    public enum ReportType {
+        DAILY_APPOINTMENTS, // 每日预约统计
+        DOCTOR_WORKLOAD     // 医生工作量
+    }
+
+    public enum JobStatus {
+        QUEUED,     // 排队中
+        RUNNING,    // 生成中
+        COMPLETED,  // 已完成，可下载
+        FAILED      // 生成失败
+    }
+}
@@ -0,0 +1,15 @@
+package com.hospital.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class ReportJobRequest {
+    private ReportJobDTO.ReportType type;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    // 仅医生工作量报表使用
+    private String sortBy;
+    private Integer limit;
+}
@@ -13,6 +13,7 @@ public class TimeSlotDTO {
     private LocalDateTime endTime;
     
     private Integer currentPatients;
+    private Integer blockPatients; // 所在排班时段的已预约总人数（时间段网格返回）
     private Integer maxPatients;
     private Boolean available; // 是否可用（未满员且在工作时间段内）
     private Boolean isWorkingTime; // 是否是医生的工作时间段
@@ -6,7 +6,13 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "appointment")
+@Table(name = "appointment",
+        indexes = {
+                @Index(name = "idx_appointment_doctor_time_status", columnList = "doctor_id, appointment_time, status"),
+                @Index(name = "idx_appointment_doctor_status_time", columnList = "doctor_id, status, appointment_time"),
+                @Index(name = "idx_appointment_patient_time", columnList = "patient_id, appointment_time"),
+                @Index(name = "idx_appointment_patient_status_time", columnList = "patient_id, status, appointment_time")
+        })
 public class Appointment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,52 @@
+package com.hospital.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 预约日汇总：按 (日期, 医生, 状态) 记录预约数量。
+ * 随预约创建和状态变更增量维护，管理端统计直接读取，不再扫描预约明细
+ */
+@Data
+@Entity
+@Table(name = "appointment_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rollup_date_doctor_status",
+                columnNames = {"stat_date", "doctor_id", "status"}),
+        indexes = @Index(name = "idx_rollup_doctor_date", columnList = "doctor_id, stat_date"))
+public class AppointmentDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Appointment.AppointmentStatus status;
+
+    @Column(name = "appointment_count", nullable = false)
+    private Long appointmentCount = 0L;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,54 @@
+package com.hospital.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 号源容量台账：每个排班时段在具体日期上的已预约人数与容量上限。
+ * 同时作为未来若干周的可预约日历，由定时任务按排班预先生成
+ */
+@Data
+@Entity
+@Table(name = "slot_capacity",
+        uniqueConstraints = @UniqueConstraint(name = "uk_slot_capacity_schedule_date",
+                columnNames = {"schedule_id", "slot_date"}),
+        indexes = @Index(name = "idx_slot_capacity_doctor_date", columnList = "doctor_id, slot_date"))
+public class SlotCapacity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "schedule_id", nullable = false)
+    private Long scheduleId;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "booked_count", nullable = false)
+    private Integer bookedCount = 0;
+
+    @Column(name = "max_patients", nullable = false)
+    private Integer maxPatients;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
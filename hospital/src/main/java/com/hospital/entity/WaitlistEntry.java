@@ -0,0 +1,72 @@
+package com.hospital.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 预约候补：号源已满时登记，有患者取消后按登记顺序自动转为正式预约
+ */
+@Data
+@Entity
+@Table(name = "appointment_waitlist",
+        indexes = {
+                @Index(name = "idx_waitlist_slot_status", columnList = "schedule_id, slot_date, status"),
+                @Index(name = "idx_waitlist_patient_id", columnList = "patient_id")
+        })
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "schedule_id", nullable = false)
+    private Long scheduleId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "appointment_time", nullable = false)
+    private LocalDateTime appointmentTime;
+
+    @Column(length = 500)
+    private String notes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WaitlistStatus status = WaitlistStatus.WAITING;
+
+    @Column(name = "appointment_id")
+    private Long appointmentId;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum WaitlistStatus {
+        WAITING,    // 候补中
+        PROMOTING,  // 转正处理中
+        PROMOTED,   // 已转为预约
+        CANCELLED,  // 已取消
+        EXPIRED     // 已过期
+    }
+}
@@ -0,0 +1,10 @@
+package com.hospital.event;
+
+import com.hospital.entity.Appointment;
+
+/**
+ * 预约状态变更事件：previousStatus 为 null 表示新建预约
+ */
+public record AppointmentStatusChangedEvent(Appointment appointment,
+                                            Appointment.AppointmentStatus previousStatus) {
+}
@@ -0,0 +1,59 @@
+package com.hospital.repository;
+
+import com.hospital.entity.Appointment;
+import com.hospital.entity.AppointmentDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AppointmentDailyRollupRepository extends JpaRepository<AppointmentDailyRollup, Long> {
+
+    // 按增量累加某日某医生某状态的预约数，汇总行不存在时插入
+    @Modifying
+    @Query(value = "INSERT INTO appointment_daily_rollup " +
+                   "(stat_date, doctor_id, status, appointment_count, created_at, updated_at) " +
+                   "VALUES (:statDate, :doctorId, :status, :delta, NOW(), NOW()) " +
+                   "ON DUPLICATE KEY UPDATE appointment_count = appointment_count + :delta, updated_at = NOW()",
+           nativeQuery = true)
+    int applyDelta(@Param("statDate") LocalDate statDate,
+                   @Param("doctorId") Long doctorId,
+                   @Param("status") String status,
+                   @Param("delta") long delta);
+
+    // 删除日期范围内的汇总行（重建前调用）
+    @Modifying
+    @Query("DELETE FROM AppointmentDailyRollup r WHERE r.statDate >= :startDate AND r.statDate <= :endDate")
+    int deleteByStatDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // 由预约明细按 [start, end) 重新生成汇总行
+    @Modifying
+    @Query(value = "INSERT INTO appointment_daily_rollup " +
+                   "(stat_date, doctor_id, status, appointment_count, created_at, updated_at) " +
+                   "SELECT CAST(appointment_time AS DATE), doctor_id, status, COUNT(*), NOW(), NOW() " +
+                   "FROM appointment WHERE appointment_time >= :start AND appointment_time < :end " +
+                   "GROUP BY CAST(appointment_time AS DATE), doctor_id, status",
+           nativeQuery = true)
+    int rebuildFromAppointments(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // 按日期和状态汇总
+    @Query("SELECT r.statDate AS day, r.status AS status, SUM(r.appointmentCount) AS total " +
+           "FROM AppointmentDailyRollup r WHERE r.statDate >= :startDate AND r.statDate <= :endDate " +
+           "GROUP BY r.statDate, r.status")
+    List<DailyStatusCount> sumByDayAndStatus(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+
+    interface DailyStatusCount {
+        LocalDate getDay();
+
+        Appointment.AppointmentStatus getStatus();
+
+        Long getTotal();
+    }
+}
@@ -1,16 +1,20 @@
 package com.hospital.repository;
 
 import com.hospital.entity.Appointment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentRepositoryCustom {
     
     // 根据患者ID查找预约
     List<Appointment> findByPatientId(Long patientId);
@@ -18,6 +22,41 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     // 根据医生ID查找预约
     List<Appointment> findByDoctorId(Long doctorId);
     
+    // 患者预约分页：按预约时间、ID 倒序，从游标 (cursorTime, cursorId) 之后继续读取；筛选条件为空时不过滤
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = :patientId " +
+           "AND (:status IS NULL OR a.status = :status) " +
+           "AND (:start IS NULL OR a.appointmentTime >= :start) AND (:end IS NULL OR a.appointmentTime < :end) " +
+           "AND (:cursorTime IS NULL OR a.appointmentTime < :cursorTime " +
+           "OR (a.appointmentTime = :cursorTime AND a.id < :cursorId)) " +
+           "ORDER BY a.appointmentTime DESC, a.id DESC")
+    List<Appointment> findPatientPage(@Param("patientId") Long patientId,
+                                      @Param("status") Appointment.AppointmentStatus status,
+                                      @Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end,
+                                      @Param("cursorTime") LocalDateTime cursorTime,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable pageable);
+    
+    // 医生预约分页，规则同患者分页
+    @Query("SELECT a FROM Appointment a WHERE a.doctorId = :doctorId " +
+           "AND (:status IS NULL OR a.status = :status) " +
+           "AND (:start IS NULL OR a.appointmentTime >= :start) AND (:end IS NULL OR a.appointmentTime < :end) " +
+           "AND (:cursorTime IS NULL OR a.appointmentTime < :cursorTime " +
+           "OR (a.appointmentTime = :cursorTime AND a.id < :cursorId)) " +
+           "ORDER BY a.appointmentTime DESC, a.id DESC")
+    List<Appointment> findDoctorPage(@Param("doctorId") Long doctorId,
+                                     @Param("status") Appointment.AppointmentStatus status,
+                                     @Param("start") LocalDateTime start,
+                                     @Param("end") LocalDateTime end,
+                                     @Param("cursorTime") LocalDateTime cursorTime,
+                                     @Param("cursorId") Long cursorId,
+                                     Pageable pageable);
+    
+    // 查找患者在指定医生、指定时间的预约（候补转正恢复时判断预约是否已创建）
+    Optional<Appointment> findFirstByPatientIdAndDoctorIdAndAppointmentTimeAndStatusIn(
+            Long patientId, Long doctorId, LocalDateTime appointmentTime,
+            Collection<Appointment.AppointmentStatus> statuses);
+    
     // 根据状态查找预约
     List<Appointment> findByStatus(Appointment.AppointmentStatus status);
     
@@ -50,4 +89,113 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     
     // 根据医生和时间范围查找预约
     List<Appointment> findByDoctorIdAndAppointmentTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
+    
+    // 统计医生在 [start, end) 内的有效预约数（排除已取消、已过期），由 (doctor_id, appointment_time, status) 索引覆盖
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.doctorId = :doctorId " +
+           "AND a.appointmentTime >= :start AND a.appointmentTime < :end " +
+           "AND a.status NOT IN (com.hospital.entity.Appointment.AppointmentStatus.CANCELLED, " +
+           "com.hospital.entity.Appointment.AppointmentStatus.EXPIRED)")
+    long countActiveByDoctorIdAndTimeRange(@Param("doctorId") Long doctorId,
+                                           @Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end);
+    
+    // 按医生和预约时间分组统计 [start, end) 内的有效预约数，一次查询覆盖整个日期范围
+    @Query("SELECT a.doctorId AS doctorId, a.appointmentTime AS appointmentTime, COUNT(a) AS total " +
+           "FROM Appointment a WHERE a.doctorId IN :doctorIds " +
+           "AND a.appointmentTime >= :start AND a.appointmentTime < :end " +
+           "AND a.status NOT IN (com.hospital.entity.Appointment.AppointmentStatus.CANCELLED, " +
+           "com.hospital.entity.Appointment.AppointmentStatus.EXPIRED) " +
+           "GROUP BY a.doctorId, a.appointmentTime")
+    List<TimeCount> countActiveGroupedByDoctorAndTime(@Param("doctorIds") Collection<Long> doctorIds,
+                                                      @Param("start") LocalDateTime start,
+                                                      @Param("end") LocalDateTime end);
+    
+    // 医生在 [start, end) 内的就诊队列：一次查询关联患者姓名、电话与邮箱
+    @Query("SELECT a.id AS appointmentId, a.patientId AS patientId, a.appointmentTime AS appointmentTime, " +
+           "a.status AS status, a.notes AS notes, p.name AS patientName, p.phone AS patientPhone, u.email AS patientEmail " +
+           "FROM Appointment a LEFT JOIN Patient p ON p.id = a.patientId LEFT JOIN User u ON u.id = p.userId " +
+           "WHERE a.doctorId = :doctorId AND a.appointmentTime >= :start AND a.appointmentTime < :end " +
+           "AND a.status NOT IN (com.hospital.entity.Appointment.AppointmentStatus.CANCELLED, " +
+           "com.hospital.entity.Appointment.AppointmentStatus.EXPIRED) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<QueueRow> findQueueRows(@Param("doctorId") Long doctorId,
+                                 @Param("start") LocalDateTime start,
+                                 @Param("end") LocalDateTime end);
+    
+    // 单条预约的队列信息（推送队列增量时使用）
+    @Query("SELECT a.id AS appointmentId, a.patientId AS patientId, a.appointmentTime AS appointmentTime, " +
+           "a.status AS status, a.notes AS notes, p.name AS patientName, p.phone AS patientPhone, u.email AS patientEmail " +
+           "FROM Appointment a LEFT JOIN Patient p ON p.id = a.patientId LEFT JOIN User u ON u.id = p.userId " +
+           "WHERE a.id = :appointmentId")
+    Optional<QueueRow> findQueueRowById(@Param("appointmentId") Long appointmentId);
+    
+    // 医生在指定时间之后最早的有效预约时间
+    @Query("SELECT MIN(a.appointmentTime) FROM Appointment a WHERE a.doctorId = :doctorId " +
+           "AND a.appointmentTime >= :from " +
+           "AND a.status NOT IN (com.hospital.entity.Appointment.AppointmentStatus.CANCELLED, " +
+           "com.hospital.entity.Appointment.AppointmentStatus.EXPIRED)")
+    LocalDateTime findEarliestActiveTimeFrom(@Param("doctorId") Long doctorId, @Param("from") LocalDateTime from);
+    
+    // 医生最晚的有效预约时间
+    @Query("SELECT MAX(a.appointmentTime) FROM Appointment a WHERE a.doctorId = :doctorId " +
+           "AND a.status NOT IN (com.hospital.entity.Appointment.AppointmentStatus.CANCELLED, " +
+           "com.hospital.entity.Appointment.AppointmentStatus.EXPIRED)")
+    LocalDateTime findLatestActiveTime(@Param("doctorId") Long doctorId);
+    
+    // 指定时间之后（含）落在每周固定时段内的第一条有效预约（dayOfWeek 为 MySQL DAYOFWEEK，周日为1）
+    @Query(value = "SELECT * FROM appointment WHERE doctor_id = :doctorId AND appointment_time >= :from " +
+                   "AND status NOT IN ('CANCELLED', 'EXPIRED') AND DAYOFWEEK(appointment_time) = :dayOfWeek " +
+                   "AND CAST(appointment_time AS TIME) >= :startTime AND CAST(appointment_time AS TIME) < :endTime " +
+                   "ORDER BY appointment_time ASC LIMIT 1",
+           nativeQuery = true)
+    Optional<Appointment> findNextInWeeklyBlock(@Param("doctorId") Long doctorId,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("dayOfWeek") int dayOfWeek,
+                                                @Param("startTime") LocalTime startTime,
+                                                @Param("endTime") LocalTime endTime);
+    
+    // 指定时间之前落在每周固定时段内的最后一条有效预约
+    @Query(value = "SELECT * FROM appointment WHERE doctor_id = :doctorId AND appointment_time < :before " +
+                   "AND status NOT IN ('CANCELLED', 'EXPIRED') AND DAYOFWEEK(appointment_time) = :dayOfWeek " +
+                   "AND CAST(appointment_time AS TIME) >= :startTime AND CAST(appointment_time AS TIME) < :endTime " +
+                   "ORDER BY appointment_time DESC LIMIT 1",
+           nativeQuery = true)
+    Optional<Appointment> findPreviousInWeeklyBlock(@Param("doctorId") Long doctorId,
+                                                    @Param("before") LocalDateTime before,
+                                                    @Param("dayOfWeek") int dayOfWeek,
+                                                    @Param("startTime") LocalTime startTime,
+                                                    @Param("endTime") LocalTime endTime);
+    
+    // 全部预约中最早与最晚的预约时间（汇总表回填时确定范围）
+    @Query("SELECT MIN(a.appointmentTime) FROM Appointment a")
+    LocalDateTime findEarliestAppointmentTime();
+    
+    @Query("SELECT MAX(a.appointmentTime) FROM Appointment a")
+    LocalDateTime findLatestAppointmentTime();
+    
+    interface QueueRow {
+        Long getAppointmentId();
+        
+        Long getPatientId();
+        
+        LocalDateTime getAppointmentTime();
+        
+        Appointment.AppointmentStatus getStatus();
+        
+        String getNotes();
+        
+        String getPatientName();
+        
+        String getPatientPhone();
+        
+        String getPatientEmail();
+    }
+    
+    interface TimeCount {
+        Long getDoctorId();
+        
+        LocalDateTime getAppointmentTime();
+        
+        Long getTotal();
+    }
 }
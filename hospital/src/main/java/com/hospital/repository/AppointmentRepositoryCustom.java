@@ -0,0 +1,18 @@
+package com.hospital.repository;
+
+import com.hospital.dto.AppointmentExportDTO;
+import com.hospital.entity.Appointment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface AppointmentRepositoryCustom {
+
+    // 使用 JDBC 批量插入预约，并回填生成的主键
+    void batchInsert(List<Appointment> appointments);
+
+    // 以只进游标逐行读取 [start, end) 内的预约导出数据，doctorId / departmentId 为空时不过滤
+    void streamForExport(LocalDateTime start, LocalDateTime end, Long doctorId, Long departmentId,
+                         Consumer<AppointmentExportDTO> consumer);
+}
@@ -0,0 +1,118 @@
+package com.hospital.repository;
+
+import com.hospital.dto.AppointmentExportDTO;
+import com.hospital.entity.Appointment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class AppointmentRepositoryCustomImpl implements AppointmentRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO appointment (patient_id, doctor_id, appointment_time, status, notes, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String EXPORT_SQL =
+            "SELECT a.id, a.appointment_time, a.status, a.doctor_id, d.name AS doctor_name, " +
+            "dep.id AS department_id, dep.name AS department_name, a.patient_id, p.name AS patient_name, a.notes " +
+            "FROM appointment a LEFT JOIN doctor d ON d.id = a.doctor_id " +
+            "LEFT JOIN department dep ON dep.id = d.department_id " +
+            "LEFT JOIN patient p ON p.id = a.patient_id " +
+            "WHERE a.appointment_time >= ? AND a.appointment_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${booking.batch.jdbc-batch-size:200}")
+    private Integer batchSize;
+
+    // MySQL 驱动仅在 fetchSize 为 Integer.MIN_VALUE 时逐行流式读取，否则会把整个结果集读入内存
+    @Value("${stats.export.fetch-size:-2147483648}")
+    private Integer exportFetchSize;
+
+    @Override
+    public void batchInsert(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        // 在当前事务的连接上执行，按固定大小分批提交
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < appointments.size(); from += batchSize) {
+                    List<Appointment> chunk = appointments.subList(from, Math.min(from + batchSize, appointments.size()));
+                    for (Appointment appointment : chunk) {
+                        appointment.setCreatedAt(now);
+                        appointment.setUpdatedAt(now);
+                        ps.setLong(1, appointment.getPatientId());
+                        ps.setLong(2, appointment.getDoctorId());
+                        ps.setObject(3, appointment.getAppointmentTime());
+                        ps.setString(4, appointment.getStatus().name());
+                        ps.setString(5, appointment.getNotes());
+                        ps.setObject(6, now);
+                        ps.setObject(7, now);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        int index = 0;
+                        while (keys.next() && index < chunk.size()) {
+                            chunk.get(index++).setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void streamForExport(LocalDateTime start, LocalDateTime end, Long doctorId, Long departmentId,
+                                Consumer<AppointmentExportDTO> consumer) {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> params = new ArrayList<>(List.of(start, end));
+        if (doctorId != null) {
+            sql.append(" AND a.doctor_id = ?");
+            params.add(doctorId);
+        }
+        if (departmentId != null) {
+            sql.append(" AND d.department_id = ?");
+            params.add(departmentId);
+        }
+        sql.append(" ORDER BY a.appointment_time ASC, a.id ASC");
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportFetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, (ResultSet rs) -> {
+            AppointmentExportDTO row = new AppointmentExportDTO();
+            row.setAppointmentId(rs.getLong("id"));
+            row.setAppointmentTime(rs.getObject("appointment_time", LocalDateTime.class));
+            row.setStatus(rs.getString("status"));
+            row.setDoctorId(rs.getLong("doctor_id"));
+            row.setDoctorName(rs.getString("doctor_name"));
+            row.setDepartmentId(rs.getObject("department_id", Long.class));
+            row.setDepartmentName(rs.getString("department_name"));
+            row.setPatientId(rs.getLong("patient_id"));
+            row.setPatientName(rs.getString("patient_name"));
+            row.setNotes(rs.getString("notes"));
+            consumer.accept(row);
+        });
+    }
+}
@@ -2,8 +2,12 @@ package com.hospital.repository;
 
 import com.hospital.entity.Department;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +20,26 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     Optional<Department> findByName(String name);
 
     Optional<Department> findByNameIgnoreCase(String name);
+
+    // 各科室医生数与日期范围内的预约数：科室、医生与预约日汇总一次关联统计
+    @Query("SELECT dep.id AS departmentId, dep.name AS departmentName, dep.description AS description, " +
+           "COUNT(DISTINCT d.id) AS doctorCount, COALESCE(SUM(r.appointmentCount), 0) AS appointmentCount " +
+           "FROM Department dep LEFT JOIN Doctor d ON d.department = dep " +
+           "LEFT JOIN AppointmentDailyRollup r ON r.doctorId = d.id " +
+           "AND r.statDate >= :startDate AND r.statDate <= :endDate " +
+           "GROUP BY dep.id, dep.name, dep.description ORDER BY dep.id")
+    List<DepartmentStatRow> findDepartmentStats(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    interface DepartmentStatRow {
+        Long getDepartmentId();
+
+        String getDepartmentName();
+
+        String getDescription();
+
+        Long getDoctorCount();
+
+        Long getAppointmentCount();
+    }
 }
@@ -2,9 +2,15 @@
 package com.hospital.repository;
 
 import com.hospital.entity.Doctor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,5 +24,46 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
 
     List<Doctor> findByDepartment_NameIgnoreCase(String departmentName);
 
+    @EntityGraph(attributePaths = "department")
     List<Doctor> findByDepartment_Id(Long departmentId);
+
+    // 查询全部医生，同时加载科室（构建搜索索引使用）
+    @Query("SELECT d FROM Doctor d LEFT JOIN FETCH d.department")
+    List<Doctor> findAllWithDepartment();
+
+    // 按ID批量查询医生，同时加载科室
+    @Query("SELECT d FROM Doctor d LEFT JOIN FETCH d.department WHERE d.id IN :ids")
+    List<Doctor> findAllWithDepartmentByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 医生工作量：按医生对预约日汇总做条件聚合，并关联科室名称；排序与条数由 pageable 指定
+    @Query("SELECT d.id AS doctorId, d.name AS doctorName, dep.id AS departmentId, dep.name AS departmentName, " +
+           "COALESCE(SUM(r.appointmentCount), 0) AS totalAppointments, " +
+           "COALESCE(SUM(CASE WHEN r.status = com.hospital.entity.Appointment.AppointmentStatus.COMPLETED " +
+           "THEN r.appointmentCount ELSE 0 END), 0) AS completedAppointments, " +
+           "COALESCE(SUM(CASE WHEN r.status IN (com.hospital.entity.Appointment.AppointmentStatus.PENDING, " +
+           "com.hospital.entity.Appointment.AppointmentStatus.CONFIRMED) " +
+           "THEN r.appointmentCount ELSE 0 END), 0) AS pendingAppointments " +
+           "FROM Doctor d LEFT JOIN d.department dep " +
+           "LEFT JOIN AppointmentDailyRollup r ON r.doctorId = d.id " +
+           "AND r.statDate >= :startDate AND r.statDate <= :endDate " +
+           "GROUP BY d.id, d.name, dep.id, dep.name")
+    List<WorkloadRow> findWorkload(@Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate,
+                                   Pageable pageable);
+
+    interface WorkloadRow {
+        Long getDoctorId();
+
+        String getDoctorName();
+
+        Long getDepartmentId();
+
+        String getDepartmentName();
+
+        Long getTotalAppointments();
+
+        Long getCompletedAppointments();
+
+        Long getPendingAppointments();
+    }
 }
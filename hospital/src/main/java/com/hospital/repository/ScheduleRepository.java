@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.DayOfWeek;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +14,9 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
     // 根据医生ID查找排班
     List<Schedule> findByDoctorId(Long doctorId);
     
+    // 批量查找多个医生的排班
+    List<Schedule> findByDoctorIdIn(Collection<Long> doctorIds);
+    
     // 根据医生ID和星期几查找排班
     List<Schedule> findByDoctorIdAndDayOfWeek(Long doctorId, DayOfWeek dayOfWeek);
     
@@ -0,0 +1,73 @@
+package com.hospital.repository;
+
+import com.hospital.entity.SlotCapacity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SlotCapacityRepository extends JpaRepository<SlotCapacity, Long> {
+
+    boolean existsByScheduleIdAndSlotDate(Long scheduleId, LocalDate slotDate);
+
+    Optional<SlotCapacity> findByScheduleIdAndSlotDate(Long scheduleId, LocalDate slotDate);
+
+    // 按医生和日期范围读取可预约日历（走 doctor_id + slot_date 索引）
+    List<SlotCapacity> findByDoctorIdInAndSlotDateBetween(Collection<Long> doctorIds, LocalDate startDate, LocalDate endDate);
+
+    // 加行锁读取台账（批量占用号源时使用）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SlotCapacity s WHERE s.scheduleId = :scheduleId AND s.slotDate = :slotDate")
+    Optional<SlotCapacity> findForUpdate(@Param("scheduleId") Long scheduleId, @Param("slotDate") LocalDate slotDate);
+
+    // 有余量时占用一个号源（单行条件更新，返回受影响行数）
+    @Modifying
+    @Query("UPDATE SlotCapacity s SET s.bookedCount = s.bookedCount + 1, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.scheduleId = :scheduleId AND s.slotDate = :slotDate AND s.bookedCount < s.maxPatients")
+    int incrementIfAvailable(@Param("scheduleId") Long scheduleId, @Param("slotDate") LocalDate slotDate);
+
+    // 释放一个号源
+    @Modifying
+    @Query("UPDATE SlotCapacity s SET s.bookedCount = s.bookedCount - 1, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.scheduleId = :scheduleId AND s.slotDate = :slotDate AND s.bookedCount > 0")
+    int decrement(@Param("scheduleId") Long scheduleId, @Param("slotDate") LocalDate slotDate);
+
+    // 首次使用时按现有有效预约数初始化台账行，已存在则忽略
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO slot_capacity " +
+                   "(schedule_id, doctor_id, slot_date, booked_count, max_patients, created_at, updated_at) " +
+                   "SELECT :scheduleId, :doctorId, :slotDate, COUNT(*), :maxPatients, NOW(), NOW() " +
+                   "FROM appointment WHERE doctor_id = :doctorId " +
+                   "AND appointment_time >= :blockStart AND appointment_time < :blockEnd " +
+                   "AND status NOT IN ('CANCELLED', 'EXPIRED')",
+           nativeQuery = true)
+    int initializeIfAbsent(@Param("scheduleId") Long scheduleId,
+                           @Param("doctorId") Long doctorId,
+                           @Param("slotDate") LocalDate slotDate,
+                           @Param("maxPatients") Integer maxPatients,
+                           @Param("blockStart") LocalDateTime blockStart,
+                           @Param("blockEnd") LocalDateTime blockEnd);
+
+    @Modifying
+    @Query("DELETE FROM SlotCapacity s WHERE s.scheduleId = :scheduleId")
+    void deleteByScheduleId(@Param("scheduleId") Long scheduleId);
+
+    @Modifying
+    @Query("DELETE FROM SlotCapacity s WHERE s.doctorId = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+
+    // 清理已过去日期的台账
+    @Modifying
+    @Query("DELETE FROM SlotCapacity s WHERE s.slotDate < :date")
+    int deleteBySlotDateBefore(@Param("date") LocalDate date);
+}
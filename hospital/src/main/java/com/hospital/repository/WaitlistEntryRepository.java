@@ -0,0 +1,51 @@
+package com.hospital.repository;
+
+import com.hospital.entity.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    List<WaitlistEntry> findByPatientIdOrderByCreatedAtDesc(Long patientId);
+
+    boolean existsByPatientIdAndScheduleIdAndSlotDateAndStatus(Long patientId, Long scheduleId, LocalDate slotDate,
+                                                               WaitlistEntry.WaitlistStatus status);
+
+    // 按登记顺序取下一位候补患者
+    Optional<WaitlistEntry> findFirstByScheduleIdAndSlotDateAndStatusOrderByIdAsc(Long scheduleId, LocalDate slotDate,
+                                                                                  WaitlistEntry.WaitlistStatus status);
+
+    // 条件更新候补状态，返回受影响行数（用于并发转正时抢占候补记录）
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = :target, w.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE w.id = :id AND w.status = :expected")
+    int updateStatus(@Param("id") Long id,
+                     @Param("expected") WaitlistEntry.WaitlistStatus expected,
+                     @Param("target") WaitlistEntry.WaitlistStatus target);
+
+    // 转正处理中且长时间未更新的候补（进程在转正途中退出遗留）
+    List<WaitlistEntry> findByStatusAndUpdatedAtBefore(WaitlistEntry.WaitlistStatus status, LocalDateTime before);
+
+    // 将转正处理中的候补标记为已转正并关联预约
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = com.hospital.entity.WaitlistEntry.WaitlistStatus.PROMOTED, " +
+           "w.appointmentId = :appointmentId, w.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE w.id = :id AND w.status = com.hospital.entity.WaitlistEntry.WaitlistStatus.PROMOTING")
+    int markPromoted(@Param("id") Long id, @Param("appointmentId") Long appointmentId);
+
+    // 将就诊时间已过的候补标记为过期
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = com.hospital.entity.WaitlistEntry.WaitlistStatus.EXPIRED, " +
+           "w.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE w.status = com.hospital.entity.WaitlistEntry.WaitlistStatus.WAITING AND w.appointmentTime < :now")
+    int expireBefore(@Param("now") LocalDateTime now);
+}
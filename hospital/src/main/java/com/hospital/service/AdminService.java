@@ -46,5 +46,9 @@ public interface AdminService {
 
     List<AdminDailyAppointmentDTO> getDailyAppointmentStats(LocalDate startDate, LocalDate endDate);
 
-    List<AdminDoctorWorkloadDTO> getDoctorWorkload(LocalDate startDate, LocalDate endDate);
+    // sortBy 可选 total / completed / pending，limit 为空时返回全部医生
+    List<AdminDoctorWorkloadDTO> getDoctorWorkload(LocalDate startDate, LocalDate endDate, String sortBy, Integer limit);
+
+    // 由预约明细重建日期范围内的统计汇总，返回生成的汇总行数
+    int rebuildAppointmentRollup(LocalDate startDate, LocalDate endDate);
 }
@@ -1,7 +1,6 @@
 package com.hospital.service;
 
 import com.hospital.dto.*;
-import com.hospital.entity.Appointment;
 import com.hospital.entity.Department;
 import com.hospital.entity.Doctor;
 import com.hospital.entity.Schedule;
@@ -10,15 +9,18 @@ import com.hospital.entity.User;
 import com.hospital.entity.UserRole;
 import com.hospital.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,9 +33,14 @@ public class AdminServiceImpl implements AdminService {
     private final ScheduleAdjustmentRequestRepository adjustmentRequestRepository;
     private final ScheduleService scheduleService;
     private final PasswordEncoder passwordEncoder;
-    private final PatientRepository patientRepository;
-    private final AppointmentRepository appointmentRepository;
     private final DepartmentRepository departmentRepository;
+    private final SlotCapacityService slotCapacityService;
+    private final ScheduleIndex scheduleIndex;
+    private final AppointmentDailyRollupRepository rollupRepository;
+    private final AppointmentRollupService appointmentRollupService;
+    private final OverviewStatsService overviewStatsService;
+    private final ReferenceDataCache referenceDataCache;
+    private final DoctorSearchIndex doctorSearchIndex;
 
     @Override
     @Transactional
@@ -63,6 +70,9 @@ public class AdminServiceImpl implements AdminService {
         doctor.setTitle(request.getTitle());
 
         Doctor savedDoctor = doctorRepository.save(doctor);
+        overviewStatsService.invalidate();
+        referenceDataCache.invalidateAll();
+        doctorSearchIndex.refreshDoctor(savedDoctor.getId());
         
         // 转换为DTO
         DoctorDTO dto = new DoctorDTO();
@@ -148,6 +158,8 @@ public class AdminServiceImpl implements AdminService {
         }
         
         Doctor updatedDoctor = doctorRepository.save(doctor);
+        referenceDataCache.invalidateAll();
+        doctorSearchIndex.refreshDoctor(doctorId);
         
         // 转换为DTO
         DoctorDTO dto = new DoctorDTO();
@@ -174,8 +186,10 @@ public class AdminServiceImpl implements AdminService {
         Doctor doctor = doctorRepository.findById(doctorId)
                 .orElseThrow(() -> new RuntimeException("医生不存在"));
         
-        // 删除排班
+        // 删除排班及号源台账
         scheduleRepository.deleteByDoctorId(doctorId);
+        scheduleIndex.invalidate(doctorId);
+        slotCapacityService.evictDoctor(doctorId);
 
         // 删除相关的排班调整申请，避免残留脏数据导致管理端加载失败
         adjustmentRequestRepository.deleteByDoctorId(doctorId);
@@ -185,6 +199,9 @@ public class AdminServiceImpl implements AdminService {
         
         // 删除用户账号
         userRepository.deleteById(doctor.getUserId());
+        overviewStatsService.invalidate();
+        referenceDataCache.invalidateAll();
+        doctorSearchIndex.removeDoctor(doctorId);
     }
 
     @Override
@@ -243,6 +260,7 @@ public class AdminServiceImpl implements AdminService {
         scheduleRequest.setStartTime(request.getStartTime());
         scheduleRequest.setEndTime(request.getEndTime());
         
+        // createSchedule 会在提交后失效该医生的排班索引
         scheduleService.createSchedule(scheduleRequest);
         
         // 更新申请状态
@@ -255,78 +273,77 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     public AdminOverviewStatsDTO getOverviewStats() {
-        AdminOverviewStatsDTO dto = new AdminOverviewStatsDTO();
-
-        dto.setTotalPatients(patientRepository.count());
-        dto.setTotalDoctors(doctorRepository.count());
-        dto.setTotalDepartments(departmentRepository.count());
-
-        LocalDate today = LocalDate.now();
-        LocalDateTime startOfToday = today.atStartOfDay();
-        LocalDateTime endOfToday = endOfDay(today);
-
-        LocalDate weekStart = today.with(DayOfWeek.MONDAY);
-        LocalDateTime startOfWeek = weekStart.atStartOfDay();
-        LocalDateTime endOfWeek = endOfDay(today);
-
-        dto.setTodaysAppointments(appointmentRepository.countByAppointmentTimeBetween(startOfToday, endOfToday));
-        dto.setWeekAppointments(appointmentRepository.countByAppointmentTimeBetween(startOfWeek, endOfWeek));
-        dto.setPendingAppointments(appointmentRepository.countByStatus(Appointment.AppointmentStatus.PENDING));
-
-        return dto;
+        return overviewStatsService.getOverviewStats();
     }
 
     @Override
     public List<AdminDepartmentStatDTO> getDepartmentStats(LocalDate startDate, LocalDate endDate) {
         LocalDate[] range = resolveDateRange(startDate, endDate);
-        LocalDateTime startDateTime = range[0].atStartOfDay();
-        LocalDateTime endDateTime = endOfDay(range[1]);
 
-        return departmentRepository.findAll().stream()
-                .map(department -> buildDepartmentStat(department, startDateTime, endDateTime))
+        return departmentRepository.findDepartmentStats(range[0], range[1]).stream()
+                .map(this::convertDepartmentStat)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<AdminDailyAppointmentDTO> getDailyAppointmentStats(LocalDate startDate, LocalDate endDate) {
         LocalDate[] range = resolveDateRange(startDate, endDate);
-        LocalDate cursor = range[0];
-        List<AdminDailyAppointmentDTO> results = new ArrayList<>();
-
-        while (!cursor.isAfter(range[1])) {
-            LocalDateTime dayStart = cursor.atStartOfDay();
-            LocalDateTime dayEnd = endOfDay(cursor);
 
+        // 先按日期生成零值行，再用日汇总的分组结果填充
+        Map<LocalDate, AdminDailyAppointmentDTO> byDay = new LinkedHashMap<>();
+        for (LocalDate cursor = range[0]; !cursor.isAfter(range[1]); cursor = cursor.plusDays(1)) {
             AdminDailyAppointmentDTO dto = new AdminDailyAppointmentDTO();
             dto.setDate(cursor);
-            dto.setTotal(appointmentRepository.countByAppointmentTimeBetween(dayStart, dayEnd));
-            dto.setPending(appointmentRepository.countByStatusAndAppointmentTimeBetween(
-                    Appointment.AppointmentStatus.PENDING, dayStart, dayEnd));
-            dto.setConfirmed(appointmentRepository.countByStatusAndAppointmentTimeBetween(
-                    Appointment.AppointmentStatus.CONFIRMED, dayStart, dayEnd));
-            dto.setCompleted(appointmentRepository.countByStatusAndAppointmentTimeBetween(
-                    Appointment.AppointmentStatus.COMPLETED, dayStart, dayEnd));
-            dto.setCancelled(appointmentRepository.countByStatusAndAppointmentTimeBetween(
-                    Appointment.AppointmentStatus.CANCELLED, dayStart, dayEnd));
-
-            results.add(dto);
-            cursor = cursor.plusDays(1);
+            byDay.put(cursor, dto);
         }
 
-        return results;
+        List<AppointmentDailyRollupRepository.DailyStatusCount> counts =
+                rollupRepository.sumByDayAndStatus(range[0], range[1]);
+        for (AppointmentDailyRollupRepository.DailyStatusCount count : counts) {
+            AdminDailyAppointmentDTO dto = byDay.get(count.getDay());
+            if (dto == null) {
+                continue;
+            }
+            long total = count.getTotal();
+            dto.setTotal(dto.getTotal() + total);
+            switch (count.getStatus()) {
+                case PENDING -> dto.setPending(dto.getPending() + total);
+                case CONFIRMED -> dto.setConfirmed(dto.getConfirmed() + total);
+                case COMPLETED -> dto.setCompleted(dto.getCompleted() + total);
+                case CANCELLED -> dto.setCancelled(dto.getCancelled() + total);
+                default -> {
+                }
+            }
+        }
+
+        return new ArrayList<>(byDay.values());
     }
 
     @Override
-    public List<AdminDoctorWorkloadDTO> getDoctorWorkload(LocalDate startDate, LocalDate endDate) {
+    public List<AdminDoctorWorkloadDTO> getDoctorWorkload(LocalDate startDate, LocalDate endDate,
+                                                         String sortBy, Integer limit) {
         LocalDate[] range = resolveDateRange(startDate, endDate);
-        LocalDateTime startDateTime = range[0].atStartOfDay();
-        LocalDateTime endDateTime = endOfDay(range[1]);
+        Sort sort = resolveWorkloadSort(sortBy);
+        Pageable pageable;
+        if (limit == null) {
+            pageable = Pageable.unpaged(sort);
+        } else if (limit <= 0) {
+            throw new IllegalArgumentException("返回条数必须大于0");
+        } else {
+            pageable = PageRequest.of(0, limit, sort);
+        }
 
-        return doctorRepository.findAll().stream()
-                .map(doctor -> buildDoctorWorkload(doctor, startDateTime, endDateTime))
+        return doctorRepository.findWorkload(range[0], range[1], pageable).stream()
+                .map(this::convertWorkload)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public int rebuildAppointmentRollup(LocalDate startDate, LocalDate endDate) {
+        LocalDate[] range = resolveDateRange(startDate, endDate);
+        return appointmentRollupService.rebuild(range[0], range[1]);
+    }
+
     @Override
     @Transactional
     public ScheduleAdjustmentRequestDTO rejectAdjustmentRequest(Long requestId, String response) {
@@ -404,58 +421,45 @@ public class AdminServiceImpl implements AdminService {
         return dto;
     }
 
-    private AdminDepartmentStatDTO buildDepartmentStat(Department department,
-                                                       LocalDateTime start,
-                                                       LocalDateTime end) {
+    private AdminDepartmentStatDTO convertDepartmentStat(DepartmentRepository.DepartmentStatRow row) {
         AdminDepartmentStatDTO dto = new AdminDepartmentStatDTO();
-        dto.setDepartmentId(department.getId());
-        dto.setDepartmentName(department.getName());
-        dto.setDescription(department.getDescription());
-
-        List<Doctor> doctors = doctorRepository.findByDepartment_Id(department.getId());
-        dto.setDoctorCount(doctors.size());
-
-        if (doctors.isEmpty()) {
-            dto.setAppointmentCount(0);
-        } else {
-            List<Long> doctorIds = doctors.stream()
-                    .map(Doctor::getId)
-                    .collect(Collectors.toList());
-            long appointmentCount = appointmentRepository.countByDoctorIdInAndAppointmentTimeBetween(doctorIds, start, end);
-            dto.setAppointmentCount(appointmentCount);
-        }
-
+        dto.setDepartmentId(row.getDepartmentId());
+        dto.setDepartmentName(row.getDepartmentName());
+        dto.setDescription(row.getDescription());
+        dto.setDoctorCount(row.getDoctorCount());
+        dto.setAppointmentCount(row.getAppointmentCount());
         return dto;
     }
 
-    private AdminDoctorWorkloadDTO buildDoctorWorkload(Doctor doctor,
-                                                       LocalDateTime start,
-                                                       LocalDateTime end) {
-        List<Appointment> appointments = appointmentRepository
-                .findByDoctorIdAndAppointmentTimeBetween(doctor.getId(), start, end);
-
-        long total = appointments.size();
-        long completed = appointments.stream()
-                .filter(a -> a.getStatus() == Appointment.AppointmentStatus.COMPLETED)
-                .count();
-        long pending = appointments.stream()
-                .filter(a -> a.getStatus() == Appointment.AppointmentStatus.PENDING
-                        || a.getStatus() == Appointment.AppointmentStatus.CONFIRMED)
-                .count();
-
+    private AdminDoctorWorkloadDTO convertWorkload(DoctorRepository.WorkloadRow row) {
         AdminDoctorWorkloadDTO dto = new AdminDoctorWorkloadDTO();
-        dto.setDoctorId(doctor.getId());
-        dto.setDoctorName(doctor.getName());
-        if (doctor.getDepartment() != null) {
-            dto.setDepartmentId(doctor.getDepartment().getId());
-            dto.setDepartmentName(doctor.getDepartment().getName());
-        }
-        dto.setTotalAppointments(total);
-        dto.setCompletedAppointments(completed);
-        dto.setPendingAppointments(pending);
+        dto.setDoctorId(row.getDoctorId());
+        dto.setDoctorName(row.getDoctorName());
+        dto.setDepartmentId(row.getDepartmentId());
+        dto.setDepartmentName(row.getDepartmentName());
+        dto.setTotalAppointments(row.getTotalAppointments());
+        dto.setCompletedAppointments(row.getCompletedAppointments());
+        dto.setPendingAppointments(row.getPendingAppointments());
         return dto;
     }
 
+    /**
+     * 工作量排序：按数量排序时取降序，相同数量按医生ID升序；未指定时按医生ID升序
+     */
+    private Sort resolveWorkloadSort(String sortBy) {
+        Sort byDoctor = Sort.by(Sort.Direction.ASC, "doctorId");
+        if (sortBy == null || sortBy.isBlank()) {
+            return byDoctor;
+        }
+        String property = switch (sortBy) {
+            case "total" -> "totalAppointments";
+            case "completed" -> "completedAppointments";
+            case "pending" -> "pendingAppointments";
+            default -> throw new IllegalArgumentException("不支持的排序字段: " + sortBy);
+        };
+        return Sort.by(Sort.Direction.DESC, property).and(byDoctor);
+    }
+
     private LocalDate[] resolveDateRange(LocalDate startDate, LocalDate endDate) {
         LocalDate start = startDate != null ? startDate : LocalDate.now().minusDays(6);
         LocalDate end = endDate != null ? endDate : LocalDate.now();
@@ -466,9 +470,5 @@ public class AdminServiceImpl implements AdminService {
 
         return new LocalDate[]{start, end};
     }
-
-    private LocalDateTime endOfDay(LocalDate date) {
-        return date.plusDays(1).atStartOfDay().minusNanos(1);
-    }
 }
 
@@ -0,0 +1,45 @@
+package com.hospital.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 进程内缓存与索引的事务提交钩子。
+ * 写入方在事务内失效缓存时，提交前并发请求仍可能读到旧数据并重新缓存，
+ * 因此失效需立即执行一次、提交后再执行一次；不在事务中时只立即执行
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * 立即执行，并在当前事务提交后再执行一次
+     */
+    public static void runNowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            register(action);
+        }
+    }
+
+    /**
+     * 在当前事务提交后执行；不在事务中时立即执行
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            register(action);
+        } else {
+            action.run();
+        }
+    }
+
+    private static void register(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.hospital.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.dto.AppointmentExportDTO;
+import com.hospital.repository.AppointmentRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 预约明细流式导出：逐行读取并直接写入输出流，缓冲区写满即发送，
+ * 导出行数不受内存限制
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentExportService {
+
+    private static final String CSV_HEADER =
+            "预约ID,预约时间,状态,医生ID,医生姓名,科室ID,科室名称,患者ID,患者姓名,备注";
+    private static final DateTimeFormatter CSV_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final AppointmentRepository appointmentRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stats.export.buffer-size:65536}")
+    private Integer bufferSize;
+
+    @Getter
+    public enum ExportFormat {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson;charset=UTF-8", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * 解析导出格式，默认 CSV
+     */
+    public ExportFormat resolveFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return ExportFormat.CSV;
+        }
+        try {
+            return ExportFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("不支持的导出格式: " + format);
+        }
+    }
+
+    /**
+     * 校验导出参数
+     */
+    public void validate(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new RuntimeException("导出日期范围不能为空");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("结束日期不能早于开始日期");
+        }
+    }
+
+    /**
+     * 将 [startDate, endDate] 内的预约按格式写入输出流
+     */
+    public void export(LocalDate startDate, LocalDate endDate, Long doctorId, Long departmentId,
+                       ExportFormat format, OutputStream out) throws IOException {
+        validate(startDate, endDate);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+        if (format == ExportFormat.CSV) {
+            // BOM 便于 Excel 正确识别中文
+            writer.write('\uFEFF');
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try {
+            appointmentRepository.streamForExport(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(),
+                    doctorId, departmentId, row -> {
+                        try {
+                            writer.write(format == ExportFormat.CSV ? toCsv(row) : objectMapper.writeValueAsString(row));
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private String toCsv(AppointmentExportDTO row) {
+        return String.join(",",
+                csv(row.getAppointmentId()),
+                csv(row.getAppointmentTime() != null ? CSV_TIME_FORMAT.format(row.getAppointmentTime()) : null),
+                csv(row.getStatus()),
+                csv(row.getDoctorId()),
+                csv(row.getDoctorName()),
+                csv(row.getDepartmentId()),
+                csv(row.getDepartmentName()),
+                csv(row.getPatientId()),
+                csv(row.getPatientName()),
+                csv(row.getNotes()));
+    }
+
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,167 @@
+package com.hospital.service;
+
+import com.hospital.entity.Appointment;
+import com.hospital.event.AppointmentStatusChangedEvent;
+import com.hospital.repository.AppointmentDailyRollupRepository;
+import com.hospital.repository.AppointmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 预约日汇总维护：预约创建和状态变更时在同一事务内累加汇总行，
+ * 并提供按日期范围由预约明细重建汇总的回填与对账。
+ * 同一事务内的增量先在内存中合并，提交前按（日期, 医生, 状态）顺序每行只写一次，
+ * 缩短汇总行的锁持有时间，并保证并发事务以相同顺序加锁
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppointmentRollupService {
+
+    // 当前事务增量缓冲区的绑定键
+    private static final Object DELTAS_KEY = new Object();
+
+    private final AppointmentDailyRollupRepository rollupRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.rollup.chunk-days:31}")
+    private Integer chunkDays;
+
+    @Value("${stats.rollup.reconcile-past-days:7}")
+    private Integer reconcilePastDays;
+
+    @Value("${stats.rollup.reconcile-future-days:90}")
+    private Integer reconcileFutureDays;
+
+    /**
+     * 预约状态变更时调整汇总：旧状态减一、新状态加一。
+     * 同步监听，增量在预约写入的事务提交前落库，回滚时汇总一并回滚
+     */
+    @EventListener
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        Appointment appointment = event.appointment();
+        if (event.previousStatus() == appointment.getStatus()) {
+            return;
+        }
+        Map<RollupKey, Long> deltas = new TreeMap<>();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            deltas = transactionDeltas();
+        }
+        LocalDate statDate = appointment.getAppointmentTime().toLocalDate();
+        if (event.previousStatus() != null) {
+            deltas.merge(new RollupKey(statDate, appointment.getDoctorId(), event.previousStatus().name()), -1L, Long::sum);
+        }
+        deltas.merge(new RollupKey(statDate, appointment.getDoctorId(), appointment.getStatus().name()), 1L, Long::sum);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyDeltas(deltas);
+        }
+    }
+
+    /**
+     * 当前事务的增量缓冲区，首次使用时注册提交前落库
+     */
+    @SuppressWarnings("unchecked")
+    private Map<RollupKey, Long> transactionDeltas() {
+        Map<RollupKey, Long> deltas = (Map<RollupKey, Long>) TransactionSynchronizationManager.getResource(DELTAS_KEY);
+        if (deltas != null) {
+            return deltas;
+        }
+        Map<RollupKey, Long> created = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(DELTAS_KEY, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                applyDeltas(created);
+                created.clear();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DELTAS_KEY);
+            }
+        });
+        return created;
+    }
+
+    private void applyDeltas(Map<RollupKey, Long> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (delta != 0) {
+                rollupRepository.applyDelta(key.statDate(), key.doctorId(), key.status(), delta);
+            }
+        });
+    }
+
+    /**
+     * 由预约明细重建 [startDate, endDate] 内的汇总，按块分事务执行，返回生成的汇总行数
+     */
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("结束日期不能早于开始日期");
+        }
+        int rows = 0;
+        for (LocalDate chunkStart = startDate; !chunkStart.isAfter(endDate); chunkStart = chunkStart.plusDays(chunkDays)) {
+            LocalDate chunkEnd = chunkStart.plusDays(chunkDays - 1L);
+            LocalDate last = chunkEnd.isAfter(endDate) ? endDate : chunkEnd;
+            LocalDate first = chunkStart;
+            Integer rebuilt = transactionTemplate.execute(status -> {
+                rollupRepository.deleteByStatDateRange(first, last);
+                return rollupRepository.rebuildFromAppointments(first.atStartOfDay(), last.plusDays(1).atStartOfDay());
+            });
+            rows += rebuilt != null ? rebuilt : 0;
+        }
+        return rows;
+    }
+
+    /**
+     * 对账：重建最近若干天及未来预约窗口内的汇总，修正增量维护可能产生的偏差
+     */
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        int rows = rebuild(today.minusDays(reconcilePastDays), today.plusDays(reconcileFutureDays));
+        log.info("预约日汇总对账完成: 重建 {} 行", rows);
+    }
+
+    /**
+     * 启动后汇总表为空而已有预约时，回填全部历史数据
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime earliest = appointmentRepository.findEarliestAppointmentTime();
+        LocalDateTime latest = appointmentRepository.findLatestAppointmentTime();
+        if (earliest == null || latest == null) {
+            return;
+        }
+        int rows = rebuild(earliest.toLocalDate(), latest.toLocalDate());
+        log.info("预约日汇总回填完成: {} 至 {}, 生成 {} 行", earliest.toLocalDate(), latest.toLocalDate(), rows);
+    }
+
+    private record RollupKey(LocalDate statDate, Long doctorId, String status) implements Comparable<RollupKey> {
+        private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::statDate)
+                .thenComparing(RollupKey::doctorId)
+                .thenComparing(RollupKey::status);
+
+        @Override
+        public int compareTo(RollupKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.hospital.service;
 
 import com.hospital.dto.AppointmentDTO;
+import com.hospital.dto.AppointmentPageDTO;
+import com.hospital.dto.BatchAppointmentResultDTO;
 import com.hospital.dto.AppointmentRequest;
 import com.hospital.entity.Appointment;
 
@@ -11,6 +13,9 @@ public interface AppointmentService {
     // 创建预约
     Appointment createAppointment(AppointmentRequest request);
     
+    // 批量创建预约（同一事务内逐条准入，返回每条的处理结果）
+    List<BatchAppointmentResultDTO> createAppointments(List<AppointmentRequest> requests);
+    
     // 根据ID获取预约
     Appointment getAppointmentById(Long id);
     
@@ -20,6 +25,16 @@ public interface AppointmentService {
     // 获取医生的所有预约
     List<AppointmentDTO> getAppointmentsByDoctorId(Long doctorId);
     
+    // 游标分页获取患者预约（按预约时间倒序），状态和日期范围可选
+    AppointmentPageDTO getPatientAppointmentPage(Long patientId, String cursor, Integer size,
+                                                 Appointment.AppointmentStatus status,
+                                                 java.time.LocalDate startDate, java.time.LocalDate endDate);
+    
+    // 游标分页获取医生预约（按预约时间倒序），状态和日期范围可选
+    AppointmentPageDTO getDoctorAppointmentPage(Long doctorId, String cursor, Integer size,
+                                                Appointment.AppointmentStatus status,
+                                                java.time.LocalDate startDate, java.time.LocalDate endDate);
+    
     // 取消预约
     Appointment cancelAppointment(Long id, String reason);
     
@@ -1,18 +1,40 @@
 package com.hospital.service;
 
 import com.hospital.dto.AppointmentDTO;
+import com.hospital.dto.AppointmentPageDTO;
 import com.hospital.dto.AppointmentRequest;
+import com.hospital.dto.BatchAppointmentResultDTO;
+import com.hospital.dto.DoctorDTO;
 import com.hospital.entity.Appointment;
+import com.hospital.entity.Patient;
+import com.hospital.entity.Schedule;
+import com.hospital.event.AppointmentStatusChangedEvent;
 import com.hospital.repository.AppointmentRepository;
 import com.hospital.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,32 +45,103 @@ public class AppointmentServiceImpl implements AppointmentService {
     private final PatientRepository patientRepository;
     private final DoctorService doctorService;
     private final ScheduleService scheduleService;
+    private final SlotCapacityService slotCapacityService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${booking.batch.max-size:1000}")
+    private Integer maxBatchSize;
+
+    @Value("${booking.page.default-size:20}")
+    private Integer defaultPageSize;
+
+    @Value("${booking.page.max-size:100}")
+    private Integer maxPageSize;
 
     @Override
     @Transactional
     public Appointment createAppointment(AppointmentRequest request) {
         // 检查是否在医生的工作时间段内
-        if (!scheduleService.isWithinWorkingHours(request.getDoctorId(), request.getAppointmentTime())) {
-            throw new RuntimeException("该时间段不在医生的工作时间内，请选择医生的工作时间段");
-        }
+        Schedule schedule = scheduleService.findScheduleForDateTime(request.getDoctorId(), request.getAppointmentTime())
+                .orElseThrow(() -> new RuntimeException("该时间段不在医生的工作时间内，请选择医生的工作时间段"));
         
-        // 检查时间段是否已满员
-        if (scheduleService.isTimeSlotFull(request.getDoctorId(), request.getAppointmentTime())) {
+        // 通过容量台账原子占用号源，占用失败说明已满员
+        if (!slotCapacityService.tryAcquire(schedule, request.getAppointmentTime().toLocalDate())) {
             throw new RuntimeException("该时间段已满员，请选择其他时间");
         }
         
-        Appointment appointment = new Appointment();
-        appointment.setPatientId(request.getPatientId());
-        appointment.setDoctorId(request.getDoctorId());
-        appointment.setAppointmentTime(request.getAppointmentTime());
-        appointment.setNotes(request.getNotes());
-        appointment.setStatus(Appointment.AppointmentStatus.PENDING);
-        
-        Appointment saved = appointmentRepository.save(appointment);
-        updatePatientContactInfo(request);
+        Appointment saved = appointmentRepository.save(buildAppointment(request));
+        updatePatientContactInfo(List.of(request));
+        eventPublisher.publishEvent(new AppointmentStatusChangedEvent(saved, null));
         return saved;
     }
 
+    @Override
+    @Transactional
+    public List<BatchAppointmentResultDTO> createAppointments(List<AppointmentRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new RuntimeException("单次批量预约不能超过" + maxBatchSize + "条");
+        }
+        
+        List<BatchAppointmentResultDTO> results = new ArrayList<>(requests.size());
+        Map<Long, List<Schedule>> schedulesByDoctor = scheduleService.getSchedulesByDoctorIds(requests.stream()
+                .map(AppointmentRequest::getDoctorId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        
+        // 按（排班时段, 日期）分组，每组只做一次容量检查；
+        // 分组按 (scheduleId, date) 排序，保证并发批量请求以相同顺序锁定台账行，避免死锁
+        Map<SlotKey, List<Integer>> groups = new TreeMap<>(
+                Comparator.comparing(SlotKey::scheduleId).thenComparing(SlotKey::date));
+        Map<SlotKey, Schedule> groupSchedules = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            AppointmentRequest request = requests.get(i);
+            BatchAppointmentResultDTO result = new BatchAppointmentResultDTO();
+            result.setIndex(i);
+            result.setSuccess(false);
+            results.add(result);
+            
+            if (request.getPatientId() == null || request.getDoctorId() == null || request.getAppointmentTime() == null) {
+                result.setMessage("预约信息不完整");
+                continue;
+            }
+            Optional<Schedule> schedule = matchSchedule(
+                    schedulesByDoctor.getOrDefault(request.getDoctorId(), List.of()), request.getAppointmentTime());
+            if (schedule.isEmpty()) {
+                result.setMessage("该时间段不在医生的工作时间内，请选择医生的工作时间段");
+                continue;
+            }
+            
+            SlotKey key = new SlotKey(schedule.get().getId(), request.getAppointmentTime().toLocalDate());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            groupSchedules.put(key, schedule.get());
+        }
+        
+        List<Appointment> accepted = new ArrayList<>();
+        List<AppointmentRequest> acceptedRequests = new ArrayList<>();
+        groups.forEach((key, indexes) -> {
+            int granted = slotCapacityService.tryAcquire(groupSchedules.get(key), key.date(), indexes.size());
+            for (int j = 0; j < indexes.size(); j++) {
+                BatchAppointmentResultDTO result = results.get(indexes.get(j));
+                if (j >= granted) {
+                    result.setMessage("该时间段已满员，请选择其他时间");
+                    continue;
+                }
+                AppointmentRequest request = requests.get(indexes.get(j));
+                Appointment appointment = buildAppointment(request);
+                accepted.add(appointment);
+                acceptedRequests.add(request);
+                result.setSuccess(true);
+                result.setMessage("预约创建成功");
+                result.setAppointment(appointment);
+            }
+        });
+        
+        appointmentRepository.batchInsert(accepted);
+        updatePatientContactInfo(acceptedRequests);
+        accepted.forEach(appointment -> eventPublisher.publishEvent(new AppointmentStatusChangedEvent(appointment, null)));
+        return results;
+    }
+
     @Override
     public Appointment getAppointmentById(Long id) {
         return appointmentRepository.findById(id)
@@ -57,18 +150,36 @@ public class AppointmentServiceImpl implements AppointmentService {
 
     @Override
     public List<AppointmentDTO> getAppointmentsByPatientId(Long patientId) {
-        List<Appointment> appointments = appointmentRepository.findByPatientId(patientId);
-        return appointments.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(appointmentRepository.findByPatientId(patientId));
     }
 
     @Override
     public List<AppointmentDTO> getAppointmentsByDoctorId(Long doctorId) {
-        List<Appointment> appointments = appointmentRepository.findByDoctorId(doctorId);
-        return appointments.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(appointmentRepository.findByDoctorId(doctorId));
+    }
+
+    @Override
+    public AppointmentPageDTO getPatientAppointmentPage(Long patientId, String cursor, Integer size,
+                                                        Appointment.AppointmentStatus status,
+                                                        LocalDate startDate, LocalDate endDate) {
+        PageCursor position = decodeCursor(cursor);
+        int pageSize = resolvePageSize(size);
+        List<Appointment> rows = appointmentRepository.findPatientPage(patientId, status,
+                startOf(startDate), endOf(endDate), position.time(), position.id(),
+                PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    @Override
+    public AppointmentPageDTO getDoctorAppointmentPage(Long doctorId, String cursor, Integer size,
+                                                       Appointment.AppointmentStatus status,
+                                                       LocalDate startDate, LocalDate endDate) {
+        PageCursor position = decodeCursor(cursor);
+        int pageSize = resolvePageSize(size);
+        List<Appointment> rows = appointmentRepository.findDoctorPage(doctorId, status,
+                startOf(startDate), endOf(endDate), position.time(), position.id(),
+                PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize);
     }
 
     @Override
@@ -80,9 +191,18 @@ public class AppointmentServiceImpl implements AppointmentService {
             throw new RuntimeException("只有待确认或已确认的预约可以取消");
         }
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
         appointment.setNotes(reason);
-        return appointmentRepository.save(appointment);
+        Appointment saved = appointmentRepository.save(appointment);
+        
+        // 归还号源
+        scheduleService.findScheduleForDateTime(appointment.getDoctorId(), appointment.getAppointmentTime())
+                .ifPresent(schedule -> slotCapacityService.release(schedule, appointment.getAppointmentTime().toLocalDate()));
+        
+        // 事务提交后通知候补转正与队列推送
+        eventPublisher.publishEvent(new AppointmentStatusChangedEvent(saved, previousStatus));
+        return saved;
     }
 
     @Override
@@ -94,7 +214,9 @@ public class AppointmentServiceImpl implements AppointmentService {
         }
         
         appointment.setStatus(Appointment.AppointmentStatus.CONFIRMED);
-        return appointmentRepository.save(appointment);
+        Appointment saved = appointmentRepository.save(appointment);
+        eventPublisher.publishEvent(new AppointmentStatusChangedEvent(saved, Appointment.AppointmentStatus.PENDING));
+        return saved;
     }
 
     @Override
@@ -106,7 +228,9 @@ public class AppointmentServiceImpl implements AppointmentService {
         }
         
         appointment.setStatus(Appointment.AppointmentStatus.COMPLETED);
-        return appointmentRepository.save(appointment);
+        Appointment saved = appointmentRepository.save(appointment);
+        eventPublisher.publishEvent(new AppointmentStatusChangedEvent(saved, Appointment.AppointmentStatus.CONFIRMED));
+        return saved;
     }
 
     @Override
@@ -127,7 +251,90 @@ public class AppointmentServiceImpl implements AppointmentService {
                 .collect(Collectors.toList());
     }
 
-    private AppointmentDTO convertToDTO(Appointment appointment) {
+    /**
+     * 多取一行判断是否还有下一页，游标指向本页最后一条预约
+     */
+    private AppointmentPageDTO toPage(List<Appointment> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Appointment> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        AppointmentPageDTO page = new AppointmentPageDTO();
+        page.setItems(convertToDTOs(items));
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            Appointment last = items.get(items.size() - 1);
+            page.setNextCursor(encodeCursor(last.getAppointmentTime(), last.getId()));
+        }
+        return page;
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new RuntimeException("每页数量必须在1到" + maxPageSize + "之间");
+        }
+        return size;
+    }
+
+    private LocalDateTime startOf(LocalDate startDate) {
+        return startDate != null ? startDate.atStartOfDay() : null;
+    }
+
+    private LocalDateTime endOf(LocalDate endDate) {
+        return endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+    }
+
+    /**
+     * 游标为 "预约时间,预约ID" 的 URL 安全 Base64 编码，对客户端不透明
+     */
+    private String encodeCursor(LocalDateTime time, Long id) {
+        String raw = time + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PageCursor decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return new PageCursor(null, null);
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(',');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    private record PageCursor(LocalDateTime time, Long id) {
+    }
+
+    /**
+     * 批量转换预约列表：医生（含科室）与患者各一次 IN 查询，再按ID组装
+     */
+    private List<AppointmentDTO> convertToDTOs(List<Appointment> appointments) {
+        Set<Long> doctorIds = appointments.stream()
+                .map(Appointment::getDoctorId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> patientIds = appointments.stream()
+                .map(Appointment::getPatientId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, DoctorDTO> doctors = doctorService.getDoctorsByIds(doctorIds).stream()
+                .collect(Collectors.toMap(DoctorDTO::getId, Function.identity()));
+        Map<Long, Patient> patients = patientIds.isEmpty() ? Map.of() : patientRepository.findAllById(patientIds).stream()
+                .collect(Collectors.toMap(Patient::getId, Function.identity()));
+
+        return appointments.stream()
+                .map(appointment -> convertToDTO(appointment, doctors, patients))
+                .collect(Collectors.toList());
+    }
+
+    private AppointmentDTO convertToDTO(Appointment appointment, Map<Long, DoctorDTO> doctors, Map<Long, Patient> patients) {
         AppointmentDTO dto = new AppointmentDTO();
         dto.setId(appointment.getId());
         dto.setPatientId(appointment.getPatientId());
@@ -139,14 +346,14 @@ public class AppointmentServiceImpl implements AppointmentService {
         
         // 填充医生信息
         if (appointment.getDoctorId() != null) {
-            try {
-                var doctorDTO = doctorService.getDoctorById(appointment.getDoctorId());
+            DoctorDTO doctorDTO = doctors.get(appointment.getDoctorId());
+            if (doctorDTO != null) {
                 dto.setDoctorName(doctorDTO.getName());
                 dto.setDoctorDepartment(doctorDTO.getDepartmentName());
                 dto.setDoctorDepartmentId(doctorDTO.getDepartmentId());
                 dto.setDoctorTitle(doctorDTO.getTitle());
-            } catch (Exception e) {
-                // 如果获取医生信息失败，设置默认值
+            } else {
+                // 医生不存在时设置默认值
                 dto.setDoctorName("未知医生");
                 dto.setDoctorDepartment("未知科室");
                 dto.setDoctorTitle("未知职称");
@@ -154,21 +361,49 @@ public class AppointmentServiceImpl implements AppointmentService {
         }
         
         // 填充患者信息
-        if (appointment.getPatientId() != null) {
-            patientRepository.findById(appointment.getPatientId()).ifPresent(patient -> {
-                dto.setPatientName(patient.getName());
-                dto.setPatientPhone(patient.getPhone());
-            });
+        if (appointment.getPatientId() != null && patients.containsKey(appointment.getPatientId())) {
+            Patient patient = patients.get(appointment.getPatientId());
+            dto.setPatientName(patient.getName());
+            dto.setPatientPhone(patient.getPhone());
         }
         
         return dto;
     }
     
-    private void updatePatientContactInfo(AppointmentRequest request) {
-        if (request.getPatientId() == null) {
+    private Appointment buildAppointment(AppointmentRequest request) {
+        Appointment appointment = new Appointment();
+        appointment.setPatientId(request.getPatientId());
+        appointment.setDoctorId(request.getDoctorId());
+        appointment.setAppointmentTime(request.getAppointmentTime());
+        appointment.setNotes(request.getNotes());
+        appointment.setStatus(Appointment.AppointmentStatus.PENDING);
+        return appointment;
+    }
+    
+    private Optional<Schedule> matchSchedule(List<Schedule> schedules, LocalDateTime appointmentTime) {
+        LocalTime time = appointmentTime.toLocalTime();
+        return schedules.stream()
+                .filter(schedule -> schedule.getDayOfWeek() == appointmentTime.getDayOfWeek())
+                .filter(schedule -> !time.isBefore(schedule.getStartTime()) && time.isBefore(schedule.getEndTime()))
+                .findFirst();
+    }
+    
+    private void updatePatientContactInfo(List<AppointmentRequest> requests) {
+        // 同一患者以最后一条请求的联系方式为准，一次查询批量更新
+        Map<Long, AppointmentRequest> latest = new LinkedHashMap<>();
+        for (AppointmentRequest request : requests) {
+            if (request.getPatientId() != null
+                    && (StringUtils.hasText(request.getPatientName()) || StringUtils.hasText(request.getPatientPhone()))) {
+                latest.put(request.getPatientId(), request);
+            }
+        }
+        if (latest.isEmpty()) {
             return;
         }
-        patientRepository.findById(request.getPatientId()).ifPresent(patient -> {
+        
+        List<Patient> changed = new ArrayList<>();
+        for (Patient patient : patientRepository.findAllById(latest.keySet())) {
+            AppointmentRequest request = latest.get(patient.getId());
             boolean updated = false;
             if (StringUtils.hasText(request.getPatientName()) && !request.getPatientName().equals(patient.getName())) {
                 patient.setName(request.getPatientName());
@@ -179,8 +414,14 @@ public class AppointmentServiceImpl implements AppointmentService {
                 updated = true;
             }
             if (updated) {
-                patientRepository.save(patient);
+                changed.add(patient);
             }
-        });
+        }
+        if (!changed.isEmpty()) {
+            patientRepository.saveAll(changed);
+        }
+    }
+    
+    private record SlotKey(Long scheduleId, LocalDate date) {
     }
 }
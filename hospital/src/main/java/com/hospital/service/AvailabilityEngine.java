@@ -0,0 +1,140 @@
+package com.hospital.service;
+
+import com.hospital.entity.Schedule;
+import com.hospital.entity.SlotCapacity;
+import com.hospital.repository.AppointmentRepository;
+import com.hospital.repository.SlotCapacityRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于集合运算的可预约性计算：排班取自排班索引，占用数优先读取预先生成的可预约日历（号源台账），
+ * 日历未覆盖的时段再用一次分组查询补齐，查询次数与日期跨度、医生数量无关
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityEngine {
+
+    private final AppointmentRepository appointmentRepository;
+    private final SlotCapacityRepository slotCapacityRepository;
+    private final ScheduleIndex scheduleIndex;
+
+    /**
+     * 日期范围内至少有一位医生存在未满员时段的日期
+     */
+    public List<LocalDate> getAvailableDates(Collection<Long> doctorIds, LocalDate startDate, LocalDate endDate) {
+        Map<Long, List<Schedule>> schedules = scheduleIndex.getSchedules(doctorIds);
+        Map<BlockKey, Integer> occupancy = getBookedCounts(schedules, startDate, endDate);
+
+        List<LocalDate> availableDates = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (hasCapacity(schedules, occupancy, date)) {
+                availableDates.add(date);
+            }
+        }
+        return availableDates;
+    }
+
+    /**
+     * 日期范围内各排班时段每天的已预约人数：先按医生和日期范围扫描日历，
+     * 日历中缺失的时段（超出日历范围或尚未生成）统一用一次分组查询计算
+     */
+    public Map<BlockKey, Integer> getBookedCounts(Map<Long, List<Schedule>> schedules,
+                                                 LocalDate startDate, LocalDate endDate) {
+        Map<BlockKey, Integer> occupancy = new HashMap<>();
+        if (schedules.isEmpty()) {
+            return occupancy;
+        }
+        for (SlotCapacity capacity : slotCapacityRepository.findByDoctorIdInAndSlotDateBetween(
+                schedules.keySet(), startDate, endDate)) {
+            occupancy.put(new BlockKey(capacity.getScheduleId(), capacity.getSlotDate()), capacity.getBookedCount());
+        }
+
+        Set<Long> missingDoctors = new HashSet<>();
+        LocalDate missingStart = null;
+        LocalDate missingEnd = null;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            for (List<Schedule> doctorSchedules : schedules.values()) {
+                for (Schedule schedule : doctorSchedules) {
+                    if (schedule.getDayOfWeek() == date.getDayOfWeek()
+                            && !occupancy.containsKey(new BlockKey(schedule.getId(), date))) {
+                        missingDoctors.add(schedule.getDoctorId());
+                        missingStart = missingStart == null ? date : missingStart;
+                        missingEnd = date;
+                    }
+                }
+            }
+        }
+        if (!missingDoctors.isEmpty()) {
+            countByBlock(missingDoctors, missingStart, missingEnd).forEach(occupancy::putIfAbsent);
+        }
+        return occupancy;
+    }
+
+    /**
+     * 直接从预约表按时段汇总有效预约数，没有预约的时段不出现在结果中
+     */
+    public Map<BlockKey, Integer> countByBlock(Collection<Long> doctorIds, LocalDate startDate, LocalDate endDate) {
+        Map<BlockKey, Integer> occupancy = new HashMap<>();
+        if (doctorIds.isEmpty()) {
+            return occupancy;
+        }
+        List<AppointmentRepository.TimeCount> counts = appointmentRepository.countActiveGroupedByDoctorAndTime(
+                doctorIds, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        for (AppointmentRepository.TimeCount count : counts) {
+            LocalDateTime time = count.getAppointmentTime();
+            scheduleIndex.findBlock(count.getDoctorId(), time).ifPresent(schedule ->
+                    occupancy.merge(new BlockKey(schedule.getId(), time.toLocalDate()),
+                            count.getTotal().intValue(), Integer::sum));
+        }
+        return occupancy;
+    }
+
+    /**
+     * 按小时段汇总医生在日期范围内的有效预约数：一次分组查询，
+     * 预约时间按所在排班时段的开始时间对齐到 slotMinutes 粒度，键为小时段开始时间
+     */
+    public Map<LocalDateTime, Integer> countBySlot(Long doctorId, LocalDate startDate, LocalDate endDate, int slotMinutes) {
+        Map<LocalDateTime, Integer> occupancy = new HashMap<>();
+        List<AppointmentRepository.TimeCount> counts = appointmentRepository.countActiveGroupedByDoctorAndTime(
+                List.of(doctorId), startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        for (AppointmentRepository.TimeCount count : counts) {
+            LocalDateTime time = count.getAppointmentTime();
+            scheduleIndex.findBlock(doctorId, time).ifPresent(schedule -> {
+                LocalDateTime blockStart = LocalDateTime.of(time.toLocalDate(), schedule.getStartTime());
+                long offset = Duration.between(blockStart, time).toMinutes() / slotMinutes * slotMinutes;
+                occupancy.merge(blockStart.plusMinutes(offset), count.getTotal().intValue(), Integer::sum);
+            });
+        }
+        return occupancy;
+    }
+
+    private boolean hasCapacity(Map<Long, List<Schedule>> schedules, Map<BlockKey, Integer> occupancy, LocalDate date) {
+        for (List<Schedule> doctorSchedules : schedules.values()) {
+            for (Schedule schedule : doctorSchedules) {
+                if (schedule.getDayOfWeek() != date.getDayOfWeek()) {
+                    continue;
+                }
+                int booked = occupancy.getOrDefault(new BlockKey(schedule.getId(), date), 0);
+                if (booked < schedule.getMaxPatients()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public record BlockKey(Long scheduleId, LocalDate date) {
+    }
+}
@@ -0,0 +1,287 @@
+package com.hospital.service;
+
+import com.hospital.dto.AppointmentRequest;
+import com.hospital.dto.BatchAppointmentResultDTO;
+import com.hospital.dto.BookingTicketDTO;
+import com.hospital.entity.Appointment;
+import com.hospital.entity.Schedule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 按医生串行处理的预约准入通道：
+ * 同一医生的预约请求进入各自的信箱，由单个逻辑写者按批次处理，
+ * 在内存中维护时段占用并批量落库，避免热门医生的请求在数据库上相互争用
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookingPipelineService {
+
+    private final AppointmentService appointmentService;
+    private final ScheduleService scheduleService;
+    private final SlotCapacityService slotCapacityService;
+
+    @Value("${booking.pipeline.threads:4}")
+    private Integer threads;
+
+    @Value("${booking.pipeline.batch-size:50}")
+    private Integer batchSize;
+
+    @Value("${booking.pipeline.ticket-retention-minutes:30}")
+    private Integer ticketRetentionMinutes;
+
+    private final Map<Long, DoctorMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Map<String, BookingTicketDTO> tickets = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("booking-pipeline-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * 提交预约请求，返回预约结果的 Future
+     */
+    public CompletableFuture<Appointment> submit(AppointmentRequest request) {
+        return enqueue(request, newTicket(request).getTicketId());
+    }
+
+    /**
+     * 提交预约请求，返回可轮询的排队凭证
+     */
+    public BookingTicketDTO submitForTicket(AppointmentRequest request) {
+        BookingTicketDTO ticket = newTicket(request);
+        tickets.put(ticket.getTicketId(), ticket);
+        enqueue(request, ticket.getTicketId());
+        return copy(ticket);
+    }
+
+    /**
+     * 查询排队凭证状态
+     */
+    public BookingTicketDTO getTicket(String ticketId) {
+        BookingTicketDTO ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            throw new RuntimeException("排队凭证不存在或已过期");
+        }
+        return ticket;
+    }
+
+    /**
+     * 每10分钟清理已处理完毕的过期凭证
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void cleanExpiredTickets() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(ticketRetentionMinutes);
+        tickets.values().removeIf(ticket -> ticket.getCompletedAt() != null && ticket.getCompletedAt().isBefore(threshold));
+    }
+
+    private BookingTicketDTO newTicket(AppointmentRequest request) {
+        if (request.getDoctorId() == null || request.getAppointmentTime() == null) {
+            throw new RuntimeException("预约信息不完整");
+        }
+        BookingTicketDTO ticket = new BookingTicketDTO();
+        ticket.setTicketId(UUID.randomUUID().toString());
+        ticket.setDoctorId(request.getDoctorId());
+        ticket.setAppointmentTime(request.getAppointmentTime());
+        ticket.setStatus(BookingTicketDTO.TicketStatus.QUEUED);
+        ticket.setCreatedAt(LocalDateTime.now());
+        return ticket;
+    }
+
+    private CompletableFuture<Appointment> enqueue(AppointmentRequest request, String ticketId) {
+        PendingBooking booking = new PendingBooking(request, ticketId, new CompletableFuture<>());
+        DoctorMailbox mailbox = mailboxes.computeIfAbsent(request.getDoctorId(), id -> new DoctorMailbox());
+        mailbox.queue.offer(booking);
+        scheduleDrain(mailbox);
+        return booking.future;
+    }
+
+    private void scheduleDrain(DoctorMailbox mailbox) {
+        if (mailbox.running.compareAndSet(false, true)) {
+            executor.execute(() -> drain(mailbox));
+        }
+    }
+
+    private void drain(DoctorMailbox mailbox) {
+        try {
+            List<PendingBooking> batch;
+            while (!(batch = mailbox.pollBatch(batchSize)).isEmpty()) {
+                try {
+                    processBatch(mailbox, batch);
+                } catch (Exception e) {
+                    // 批次处理意外失败：未完成的预约全部置为失败，保证凭证进入终态并可过期清理
+                    log.error("预约批次处理失败: doctorId={}, size={}", batch.get(0).request.getDoctorId(), batch.size(), e);
+                    batch.stream()
+                            .filter(booking -> !booking.future.isDone())
+                            .forEach(booking -> reject(booking, "预约失败，请稍后重试"));
+                    mailbox.occupancy.clear();
+                }
+            }
+        } catch (Exception e) {
+            log.error("预约通道处理失败: ", e);
+        } finally {
+            // 信箱空闲后丢弃内存占用，下一轮从台账重新加载，避免与其他准入路径长期偏离
+            mailbox.occupancy.clear();
+            mailbox.running.set(false);
+            if (!mailbox.queue.isEmpty()) {
+                scheduleDrain(mailbox);
+            }
+        }
+    }
+
+    private void processBatch(DoctorMailbox mailbox, List<PendingBooking> batch) {
+        List<PendingBooking> admitted = new ArrayList<>();
+        List<SlotKey> admittedSlots = new ArrayList<>();
+
+        for (PendingBooking booking : batch) {
+            try {
+                LocalDateTime appointmentTime = booking.request.getAppointmentTime();
+                Optional<Schedule> scheduleOpt = scheduleService.findScheduleForDateTime(
+                        booking.request.getDoctorId(), appointmentTime);
+                if (scheduleOpt.isEmpty()) {
+                    reject(booking, "该时间段不在医生的工作时间内，请选择医生的工作时间段");
+                    continue;
+                }
+
+                Schedule schedule = scheduleOpt.get();
+                LocalDate date = appointmentTime.toLocalDate();
+                SlotKey slot = new SlotKey(schedule.getId(), date);
+                int booked = mailbox.occupancy.computeIfAbsent(slot, key -> slotCapacityService.getBookedCount(schedule, date));
+                if (booked >= schedule.getMaxPatients()) {
+                    reject(booking, "该时间段已满员，请选择其他时间");
+                    continue;
+                }
+
+                mailbox.occupancy.put(slot, booked + 1);
+                admitted.add(booking);
+                admittedSlots.add(slot);
+            } catch (Exception e) {
+                reject(booking, e.getMessage());
+            }
+        }
+
+        if (admitted.isEmpty()) {
+            return;
+        }
+
+        List<BatchAppointmentResultDTO> results;
+        try {
+            results = appointmentService.createAppointments(
+                    admitted.stream().map(booking -> booking.request).toList());
+        } catch (Exception e) {
+            log.error("预约批量落库失败: doctorId={}, size={}", batch.get(0).request.getDoctorId(), admitted.size(), e);
+            admitted.forEach(booking -> reject(booking, "预约失败，请稍后重试"));
+            mailbox.occupancy.clear();
+            return;
+        }
+
+        for (int i = 0; i < admitted.size(); i++) {
+            BatchAppointmentResultDTO result = results.get(i);
+            if (Boolean.TRUE.equals(result.getSuccess())) {
+                accept(admitted.get(i), result.getAppointment());
+            } else {
+                // 台账与内存占用不一致（其他准入路径已占用），以台账为准重新加载
+                reject(admitted.get(i), result.getMessage());
+                mailbox.occupancy.remove(admittedSlots.get(i));
+            }
+        }
+    }
+
+    private void accept(PendingBooking booking, Appointment appointment) {
+        Long appointmentId = appointment.getId();
+        update(booking.ticketId, ticket -> {
+            ticket.setStatus(BookingTicketDTO.TicketStatus.ACCEPTED);
+            ticket.setAppointmentId(appointmentId);
+            ticket.setMessage("预约创建成功");
+            ticket.setCompletedAt(LocalDateTime.now());
+        });
+        booking.future.complete(appointment);
+    }
+
+    private void reject(PendingBooking booking, String message) {
+        update(booking.ticketId, ticket -> {
+            ticket.setStatus(BookingTicketDTO.TicketStatus.REJECTED);
+            ticket.setMessage(message);
+            ticket.setCompletedAt(LocalDateTime.now());
+        });
+        booking.future.completeExceptionally(new RuntimeException(message));
+    }
+
+    /**
+     * 凭证以不可变快照保存：每次变更复制当前快照修改后整体替换，轮询线程读到的始终是完整的某一版本
+     */
+    private void update(String ticketId, Consumer<BookingTicketDTO> change) {
+        tickets.computeIfPresent(ticketId, (id, current) -> {
+            BookingTicketDTO next = copy(current);
+            change.accept(next);
+            return next;
+        });
+    }
+
+    private BookingTicketDTO copy(BookingTicketDTO ticket) {
+        BookingTicketDTO copy = new BookingTicketDTO();
+        copy.setTicketId(ticket.getTicketId());
+        copy.setDoctorId(ticket.getDoctorId());
+        copy.setAppointmentTime(ticket.getAppointmentTime());
+        copy.setStatus(ticket.getStatus());
+        copy.setAppointmentId(ticket.getAppointmentId());
+        copy.setMessage(ticket.getMessage());
+        copy.setCreatedAt(ticket.getCreatedAt());
+        copy.setCompletedAt(ticket.getCompletedAt());
+        return copy;
+    }
+
+    private static class DoctorMailbox {
+        private final Queue<PendingBooking> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        // 仅由当前写者线程访问
+        private final Map<SlotKey, Integer> occupancy = new HashMap<>();
+
+        private List<PendingBooking> pollBatch(int size) {
+            List<PendingBooking> batch = new ArrayList<>();
+            PendingBooking booking;
+            while (batch.size() < size && (booking = queue.poll()) != null) {
+                batch.add(booking);
+            }
+            return batch;
+        }
+    }
+
+    private record PendingBooking(AppointmentRequest request,
+                                  String ticketId,
+                                  CompletableFuture<Appointment> future) {
+    }
+
+    private record SlotKey(Long scheduleId, LocalDate date) {
+    }
+}
@@ -16,12 +16,14 @@ import java.util.stream.Collectors;
 public class DepartmentServiceImpl implements DepartmentService {
 
     private final DepartmentRepository departmentRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final DoctorSearchIndex doctorSearchIndex;
 
     @Override
     public List<DepartmentDTO> getAllDepartments() {
-        return departmentRepository.findAll().stream()
+        return referenceDataCache.getDepartments(() -> departmentRepository.findAll().stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
@@ -43,6 +45,7 @@ public class DepartmentServiceImpl implements DepartmentService {
         department.setDescription(request.getDescription());
 
         Department saved = departmentRepository.save(department);
+        referenceDataCache.invalidateAll();
         return convertToDTO(saved);
     }
 
@@ -66,6 +69,9 @@ public class DepartmentServiceImpl implements DepartmentService {
         }
 
         Department updated = departmentRepository.save(department);
+        referenceDataCache.invalidateAll();
+        // 科室名称参与医生搜索，改名后重新索引该科室下的医生
+        doctorSearchIndex.refreshDepartment(id);
         return convertToDTO(updated);
     }
 
@@ -75,6 +81,7 @@ public class DepartmentServiceImpl implements DepartmentService {
         Department department = departmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("科室不存在"));
         departmentRepository.delete(department);
+        referenceDataCache.invalidateAll();
     }
 
     private DepartmentDTO convertToDTO(Department department) {
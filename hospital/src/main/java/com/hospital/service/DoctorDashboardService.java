@@ -18,6 +18,12 @@ public interface DoctorDashboardService {
     // 获取医生指定时间段的就诊患者队列
     List<AppointmentQueueDTO> getAppointmentQueue(Long doctorId, java.time.LocalDateTime appointmentTime);
     
+    // 获取医生某个排班时段 [blockStart, blockEnd) 的就诊队列
+    List<AppointmentQueueDTO> getBlockQueue(Long doctorId, java.time.LocalDateTime blockStart, java.time.LocalDateTime blockEnd);
+    
+    // 获取单条预约的队列信息（不含排队位置）
+    AppointmentQueueDTO getQueueEntry(Long appointmentId);
+    
     // 发送就诊提醒邮件
     void sendAppointmentReminder(Long appointmentId);
     
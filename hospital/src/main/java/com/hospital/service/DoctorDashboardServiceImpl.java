@@ -5,6 +5,7 @@ import com.hospital.dto.ScheduleAdjustmentRequestDTO;
 import com.hospital.dto.ScheduleDTO;
 import com.hospital.entity.Appointment;
 import com.hospital.entity.Patient;
+import com.hospital.entity.Schedule;
 import com.hospital.entity.ScheduleAdjustmentRequest;
 import com.hospital.entity.User;
 import com.hospital.repository.*;
@@ -17,8 +18,8 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +32,7 @@ public class DoctorDashboardServiceImpl implements DoctorDashboardService {
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final ServiceTimeEstimator serviceTimeEstimator;
 
     @Override
     public List<ScheduleDTO> getMySchedulesForWeek(Long doctorId) {
@@ -39,108 +41,74 @@ public class DoctorDashboardServiceImpl implements DoctorDashboardService {
 
     @Override
     public List<AppointmentQueueDTO> getAppointmentQueue(Long doctorId, LocalDateTime appointmentTime) {
-        List<Appointment> appointments = appointmentRepository.findByDoctorId(doctorId);
-        LocalDateTime slotStart = determineSlotStart(appointments, appointmentTime, doctorId);
+        LocalDateTime slotStart = determineSlotStart(doctorId, appointmentTime);
         if (slotStart == null) {
             return java.util.Collections.emptyList();
         }
         TimeWindow timeWindow = resolveWorkingWindow(doctorId, slotStart);
-        LocalDateTime slotEnd = timeWindow.end();
-        
-        List<Appointment> filteredAppointments = appointments.stream()
-                .filter(a -> {
-                    LocalDateTime aptTime = a.getAppointmentTime();
-                    return !aptTime.isBefore(timeWindow.start()) &&
-                           aptTime.isBefore(slotEnd) &&
-                           isActiveAppointment(a);
-                })
-                .sorted(Comparator.comparing(Appointment::getAppointmentTime))
-                .collect(Collectors.toList());
+        return getBlockQueue(doctorId, timeWindow.start(), timeWindow.end());
+    }
+
+    @Override
+    public List<AppointmentQueueDTO> getBlockQueue(Long doctorId, LocalDateTime blockStart, LocalDateTime blockEnd) {
+        // 只查询目标时段内的有效预约，并在同一查询中带出患者联系方式
+        List<AppointmentRepository.QueueRow> rows = appointmentRepository.findQueueRows(doctorId, blockStart, blockEnd);
         
-        // 转换为队列DTO
-        int position = 1;
         List<AppointmentQueueDTO> queue = new java.util.ArrayList<>();
-        
-        for (Appointment appointment : filteredAppointments) {
-            AppointmentQueueDTO dto = new AppointmentQueueDTO();
-            dto.setAppointmentId(appointment.getId());
-            dto.setPatientId(appointment.getPatientId());
-            dto.setAppointmentTime(appointment.getAppointmentTime());
-            dto.setStatus(appointment.getStatus());
-            dto.setNotes(appointment.getNotes());
-            dto.setQueuePosition(position - 1); // 前面还有几人
-            
-            // 获取患者信息
-            Patient patient = patientRepository.findById(appointment.getPatientId())
-                    .orElse(null);
-            if (patient != null) {
-                dto.setPatientName(patient.getName());
-                dto.setPatientPhone(patient.getPhone());
-                
-                // 获取患者邮箱
-                User user = userRepository.findById(patient.getUserId())
-                        .orElse(null);
-                if (user != null) {
-                    dto.setPatientEmail(user.getEmail());
-                }
-            }
-            
+        for (AppointmentRepository.QueueRow row : rows) {
+            AppointmentQueueDTO dto = convertToQueueDTO(row);
+            dto.setQueuePosition(queue.size()); // 前面还有几人
             queue.add(dto);
-            position++;
         }
-        
+        scheduleService.findScheduleForDateTime(doctorId, blockStart)
+                .ifPresent(schedule -> serviceTimeEstimator.applyEstimates(queue, schedule, blockStart, 0));
         return queue;
     }
 
-    private boolean isActiveAppointment(Appointment appointment) {
-        return appointment.getStatus() != Appointment.AppointmentStatus.CANCELLED &&
-               appointment.getStatus() != Appointment.AppointmentStatus.EXPIRED;
+    @Override
+    public AppointmentQueueDTO getQueueEntry(Long appointmentId) {
+        return appointmentRepository.findQueueRowById(appointmentId)
+                .map(this::convertToQueueDTO)
+                .orElseThrow(() -> new RuntimeException("预约不存在"));
     }
 
-    private LocalDateTime findUpcomingOrClosestAppointment(List<Appointment> appointments) {
-        LocalDateTime now = LocalDateTime.now();
-        return findBestMatch(appointments, now);
+    private AppointmentQueueDTO convertToQueueDTO(AppointmentRepository.QueueRow row) {
+        AppointmentQueueDTO dto = new AppointmentQueueDTO();
+        dto.setAppointmentId(row.getAppointmentId());
+        dto.setPatientId(row.getPatientId());
+        dto.setAppointmentTime(row.getAppointmentTime());
+        dto.setStatus(row.getStatus());
+        dto.setNotes(row.getNotes());
+        dto.setPatientName(row.getPatientName());
+        dto.setPatientPhone(row.getPatientPhone());
+        dto.setPatientEmail(row.getPatientEmail());
+        return dto;
     }
 
-    private LocalDateTime findBestMatch(List<Appointment> appointments, LocalDateTime referenceTime) {
-        LocalDateTime upcoming = appointments.stream()
-                .filter(this::isActiveAppointment)
-                .filter(a -> !a.getAppointmentTime().isBefore(referenceTime))
-                .min(Comparator.comparing(Appointment::getAppointmentTime))
-                .map(Appointment::getAppointmentTime)
-                .orElse(null);
+    private LocalDateTime findUpcomingOrClosestAppointment(Long doctorId) {
+        // 优先取最近的未来预约，没有则取最后一次预约（均为索引上的 MIN/MAX 查询）
+        LocalDateTime upcoming = appointmentRepository.findEarliestActiveTimeFrom(doctorId, LocalDateTime.now());
         if (upcoming != null) {
             return upcoming;
         }
-
-        return appointments.stream()
-                .filter(this::isActiveAppointment)
-                .max(Comparator.comparing(Appointment::getAppointmentTime))
-                .map(Appointment::getAppointmentTime)
-                .orElse(null);
+        return appointmentRepository.findLatestActiveTime(doctorId);
     }
 
-    private LocalDateTime determineSlotStart(List<Appointment> appointments,
-                                             LocalDateTime requestedTime,
-                                             Long doctorId) {
+    private LocalDateTime determineSlotStart(Long doctorId, LocalDateTime requestedTime) {
         if (requestedTime != null) {
             TimeWindow requestedWindow = resolveWorkingWindow(doctorId, requestedTime);
-            if (hasAppointmentsInWindow(appointments, requestedWindow)) {
+            if (hasAppointmentsInWindow(doctorId, requestedWindow)) {
                 return requestedWindow.start();
             }
 
-            LocalDateTime closest = findClosestAppointmentForWindow(
-                    appointments,
-                    requestedWindow,
-                    requestedTime
-            );
+            LocalDateTime closest = findClosestAppointmentForWindow(doctorId, requestedWindow, requestedTime);
             if (closest != null) {
                 TimeWindow alignedWindow = requestedWindow.withDate(closest.toLocalDate());
                 return alignedWindow.start();
             }
         }
 
-        return findUpcomingOrClosestAppointment(appointments);
+        return findUpcomingOrClosestAppointment(doctorId);
     }
 
     private TimeWindow resolveWorkingWindow(Long doctorId, LocalDateTime slotStart) {
@@ -151,71 +119,45 @@ public class DoctorDashboardServiceImpl implements DoctorDashboardService {
         LocalTime scheduleEndTime = windowEnd.toLocalTime();
         boolean matchedSchedule = false;
 
-        try {
-            List<ScheduleDTO> schedules = scheduleService.getDoctorSchedulesForWeek(doctorId);
-            for (ScheduleDTO schedule : schedules) {
-                if (schedule.getDayOfWeek() == null || schedule.getStartTime() == null || schedule.getEndTime() == null) {
-                    continue;
-                }
-                if (!schedule.getDayOfWeek().equals(slotStart.getDayOfWeek())) {
-                    continue;
-                }
-
-                LocalTime scheduleStart = schedule.getStartTime();
-                LocalTime scheduleEnd = schedule.getEndTime();
-                LocalTime targetTime = slotStart.toLocalTime();
-
-                if (!targetTime.isBefore(scheduleStart) && targetTime.isBefore(scheduleEnd)) {
-                    windowStart = LocalDateTime.of(slotStart.toLocalDate(), scheduleStart);
-                    windowEnd = LocalDateTime.of(slotStart.toLocalDate(), scheduleEnd);
-                    scheduleStartTime = scheduleStart;
-                    scheduleEndTime = scheduleEnd;
-                    matchedSchedule = true;
-                    break;
-                }
-            }
-        } catch (Exception ignored) {
+        // 排班索引在内存中匹配时段，不再每次请求都加载医生的全部排班
+        Optional<Schedule> schedule = scheduleService.findScheduleForDateTime(doctorId, slotStart);
+        if (schedule.isPresent()) {
+            scheduleStartTime = schedule.get().getStartTime();
+            scheduleEndTime = schedule.get().getEndTime();
+            windowStart = LocalDateTime.of(slotStart.toLocalDate(), scheduleStartTime);
+            windowEnd = LocalDateTime.of(slotStart.toLocalDate(), scheduleEndTime);
+            matchedSchedule = true;
         }
 
         return new TimeWindow(windowStart, windowEnd, dayOfWeek, scheduleStartTime, scheduleEndTime, matchedSchedule);
     }
 
-    private boolean hasAppointmentsInWindow(List<Appointment> appointments, TimeWindow window) {
-        return appointments.stream()
-                .filter(this::isActiveAppointment)
-                .anyMatch(a -> isWithinWindow(a.getAppointmentTime(), window));
-    }
-
-    private boolean isWithinWindow(LocalDateTime time, TimeWindow window) {
-        return !time.isBefore(window.start()) && time.isBefore(window.end());
+    private boolean hasAppointmentsInWindow(Long doctorId, TimeWindow window) {
+        return appointmentRepository.countActiveByDoctorIdAndTimeRange(doctorId, window.start(), window.end()) > 0;
     }
 
-    private LocalDateTime findClosestAppointmentForWindow(List<Appointment> appointments,
+    private LocalDateTime findClosestAppointmentForWindow(Long doctorId,
                                                           TimeWindow window,
                                                           LocalDateTime referenceTime) {
         if (!window.hasScheduleMeta()) {
             return null;
         }
 
-        return appointments.stream()
-                .filter(this::isActiveAppointment)
-                .filter(a -> matchesSchedule(window, a))
-                .min(Comparator.comparingLong(a ->
-                        Math.abs(Duration.between(a.getAppointmentTime(), referenceTime).toMillis())))
+        // 在每周同一时段内，分别向后、向前各取一条最近的预约，比较后取更近者
+        int dayOfWeek = window.dayOfWeek().getValue() % 7 + 1;
+        LocalDateTime next = appointmentRepository.findNextInWeeklyBlock(doctorId, referenceTime, dayOfWeek,
+                        window.scheduleStartTime(), window.scheduleEndTime())
                 .map(Appointment::getAppointmentTime)
                 .orElse(null);
-    }
-
-    private boolean matchesSchedule(TimeWindow window, Appointment appointment) {
-        if (!window.hasScheduleMeta()) {
-            return false;
-        }
-        LocalDateTime appointmentTime = appointment.getAppointmentTime();
-        if (appointmentTime.getDayOfWeek() != window.dayOfWeek()) {
-            return false;
+        LocalDateTime previous = appointmentRepository.findPreviousInWeeklyBlock(doctorId, referenceTime, dayOfWeek,
+                        window.scheduleStartTime(), window.scheduleEndTime())
+                .map(Appointment::getAppointmentTime)
+                .orElse(null);
+        if (next == null || previous == null) {
+            return next != null ? next : previous;
         }
-        LocalTime time = appointmentTime.toLocalTime();
-        return !time.isBefore(window.scheduleStartTime()) && time.isBefore(window.scheduleEndTime());
+        return Duration.between(previous, referenceTime).compareTo(Duration.between(referenceTime, next)) < 0
+                ? previous : next;
     }
 
     private static class TimeWindow {
@@ -0,0 +1,264 @@
+package com.hospital.service;
+
+import com.hospital.dto.DoctorDTO;
+import com.hospital.entity.Doctor;
+import com.hospital.repository.DoctorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 医生搜索的进程内倒排索引：对小写化后的姓名、职称、科室名称切分单字和双字 n-gram，
+ * 中文姓名无需分词即可按任意片段检索。查询时求各双字 posting 的交集后按原文校验，
+ * 再按命中字段和前缀匹配排序。首次搜索时全量构建，之后由医生、科室写入在事务提交后增量更新，
+ * 搜索本身不访问数据库
+ */
+@Slf4j
+@Component
+public class DoctorSearchIndex {
+
+    private final DoctorRepository doctorRepository;
+    private final int maxLimit;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private volatile boolean built;
+
+    public DoctorSearchIndex(DoctorRepository doctorRepository,
+                             @Value("${cache.doctor-search.max-limit:100}") int maxLimit) {
+        this.doctorRepository = doctorRepository;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * 按关键字搜索医生（不区分大小写的子串匹配），结果按相关度排序；
+     * 指定 limit 时截取前 limit 条，未指定时返回全部匹配
+     */
+    public List<DoctorDTO> search(String keyword, Integer limit) {
+        long resolvedLimit = resolveLimit(limit);
+        String query = normalize(keyword);
+        ensureBuilt();
+
+        lock.readLock().lock();
+        try {
+            List<Match> matches = new ArrayList<>();
+            for (Long doctorId : candidates(query)) {
+                Entry entry = entries.get(doctorId);
+                int rank = entry.rank(query);
+                if (rank >= 0) {
+                    matches.add(new Match(entry, rank));
+                }
+            }
+            return matches.stream()
+                    .sorted(Comparator.comparingInt(Match::rank)
+                            .thenComparingInt(match -> match.entry.name.length())
+                            .thenComparing(match -> match.entry.doctor.getId()))
+                    .limit(resolvedLimit)
+                    .map(match -> match.entry.doctor)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 医生新增或修改后重新索引（当前事务提交后执行）
+     */
+    public void refreshDoctor(Long doctorId) {
+        AfterCommit.run(() -> reindex(doctorRepository.findAllWithDepartmentByIdIn(List.of(doctorId)), List.of(doctorId)));
+    }
+
+    /**
+     * 医生删除后移出索引（当前事务提交后执行）
+     */
+    public void removeDoctor(Long doctorId) {
+        AfterCommit.run(() -> reindex(List.of(), List.of(doctorId)));
+    }
+
+    /**
+     * 科室改名后重新索引该科室下的医生（当前事务提交后执行）
+     */
+    public void refreshDepartment(Long departmentId) {
+        AfterCommit.run(() -> {
+            List<Doctor> doctors = doctorRepository.findByDepartment_Id(departmentId);
+            reindex(doctors, doctors.stream().map(Doctor::getId).toList());
+        });
+    }
+
+    /**
+     * 以最新数据替换指定医生的索引项；索引尚未构建时忽略，首次搜索会全量加载
+     */
+    private void reindex(List<Doctor> doctors, Collection<Long> doctorIds) {
+        // 先取写锁再检查：构建期间提交的变更会等待构建完成后再应用
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                return;
+            }
+            doctorIds.forEach(this::unindex);
+            doctors.forEach(doctor -> index(new Entry(convertToDTO(doctor))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                List<Doctor> doctors = doctorRepository.findAllWithDepartment();
+                doctors.forEach(doctor -> index(new Entry(convertToDTO(doctor))));
+                built = true;
+                log.info("医生搜索索引已构建: {} 名医生, {} 个词项", entries.size(), postings.size());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Entry entry) {
+        Long doctorId = entry.doctor.getId();
+        entries.put(doctorId, entry);
+        for (String gram : entry.grams()) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(doctorId);
+        }
+    }
+
+    private void unindex(Long doctorId) {
+        Entry entry = entries.remove(doctorId);
+        if (entry == null) {
+            return;
+        }
+        for (String gram : entry.grams()) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(doctorId);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * 空查询匹配全部医生；单字查询直接取 posting；多字查询从最短的双字 posting 出发逐个求交集
+     */
+    private Set<Long> candidates(String query) {
+        if (query.isEmpty()) {
+            return entries.keySet();
+        }
+        if (query.length() == 1) {
+            return postings.getOrDefault(query, Set.of());
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (int i = 0; i + 2 <= query.length(); i++) {
+            Set<Long> ids = postings.get(query.substring(i, i + 2));
+            if (ids == null) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private long resolveLimit(Integer limit) {
+        if (limit == null) {
+            return Long.MAX_VALUE;
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new RuntimeException("返回条数必须在1到" + maxLimit + "之间");
+        }
+        return limit;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    private DoctorDTO convertToDTO(Doctor doctor) {
+        DoctorDTO dto = new DoctorDTO();
+        dto.setId(doctor.getId());
+        dto.setUserId(doctor.getUserId());
+        dto.setName(doctor.getName());
+        dto.setPhone(doctor.getPhone());
+        if (doctor.getDepartment() != null) {
+            dto.setDepartmentId(doctor.getDepartment().getId());
+            dto.setDepartmentName(doctor.getDepartment().getName());
+        }
+        dto.setTitle(doctor.getTitle());
+        dto.setCreatedAt(doctor.getCreatedAt());
+        return dto;
+    }
+
+    /**
+     * 索引项：保存归一化后的字段，字段顺序即排序权重（姓名 > 科室 > 职称）
+     */
+    private static final class Entry {
+        private final DoctorDTO doctor;
+        private final String name;
+        private final String[] fields;
+
+        private Entry(DoctorDTO doctor) {
+            this.doctor = doctor;
+            this.name = normalize(doctor.getName());
+            this.fields = new String[]{name, normalize(doctor.getDepartmentName()), normalize(doctor.getTitle())};
+        }
+
+        private Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            for (String field : fields) {
+                for (int i = 0; i < field.length(); i++) {
+                    grams.add(field.substring(i, i + 1));
+                    if (i + 2 <= field.length()) {
+                        grams.add(field.substring(i, i + 2));
+                    }
+                }
+            }
+            return grams;
+        }
+
+        /**
+         * 相关度：每个字段按完全匹配、前缀匹配、包含依次降低，未命中返回 -1（越小越靠前）
+         */
+        private int rank(String query) {
+            for (int i = 0; i < fields.length; i++) {
+                String field = fields[i];
+                if (field.equals(query)) {
+                    return i * 3;
+                }
+                if (field.startsWith(query)) {
+                    return i * 3 + 1;
+                }
+            }
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].contains(query)) {
+                    return fields.length * 3 + i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private record Match(Entry entry, int rank) {
+    }
+}
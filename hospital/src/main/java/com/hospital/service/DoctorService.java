@@ -3,6 +3,7 @@ package com.hospital.service;
 import com.hospital.dto.DoctorDTO;
 import com.hospital.entity.Doctor;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,9 @@ public interface DoctorService {
     // 根据ID获取医生
     DoctorDTO getDoctorById(Long id);
     
+    // 根据ID批量获取医生（含科室），不存在的ID忽略
+    List<DoctorDTO> getDoctorsByIds(Collection<Long> ids);
+    
     // 根据用户ID获取医生
     Optional<Doctor> getDoctorByUserId(Long userId);
     
@@ -29,6 +33,6 @@ public interface DoctorService {
     // 删除医生
     void deleteDoctor(Long id);
     
-    // 搜索医生
-    List<DoctorDTO> searchDoctors(String keyword);
+    // 搜索医生（按相关度排序，limit 为空时返回全部匹配）
+    List<DoctorDTO> searchDoctors(String keyword, Integer limit);
 }
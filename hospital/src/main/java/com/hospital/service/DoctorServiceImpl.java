@@ -6,6 +6,7 @@ import com.hospital.repository.DoctorRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -15,6 +16,8 @@ import java.util.stream.Collectors;
 public class DoctorServiceImpl implements DoctorService {
     
     private final DoctorRepository doctorRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final DoctorSearchIndex doctorSearchIndex;
 
     @Override
     public List<DoctorDTO> getAllDoctors() {
@@ -26,9 +29,23 @@ public class DoctorServiceImpl implements DoctorService {
 
     @Override
     public DoctorDTO getDoctorById(Long id) {
-        Doctor doctor = doctorRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("医生不存在"));
-        return convertToDTO(doctor);
+        return referenceDataCache.getDoctor(id, () -> {
+            Doctor doctor = doctorRepository.findAllWithDepartmentByIdIn(List.of(id)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("医生不存在"));
+            return convertToDTO(doctor);
+        });
+    }
+
+    @Override
+    public List<DoctorDTO> getDoctorsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return referenceDataCache.getDoctors(ids, missing ->
+                doctorRepository.findAllWithDepartmentByIdIn(missing).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
@@ -38,15 +55,18 @@ public class DoctorServiceImpl implements DoctorService {
 
     @Override
     public List<DoctorDTO> getDoctorsByDepartment(Long departmentId) {
-        List<Doctor> doctors = doctorRepository.findByDepartment_Id(departmentId);
-        return doctors.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return referenceDataCache.getDoctorsByDepartment(departmentId, () ->
+                doctorRepository.findByDepartment_Id(departmentId).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
     }
 
     @Override
     public Doctor createDoctor(Doctor doctor) {
-        return doctorRepository.save(doctor);
+        Doctor saved = doctorRepository.save(doctor);
+        referenceDataCache.invalidateAll();
+        doctorSearchIndex.refreshDoctor(saved.getId());
+        return saved;
     }
 
     @Override
@@ -67,7 +87,10 @@ public class DoctorServiceImpl implements DoctorService {
             doctor.setTitle(doctorDetails.getTitle());
         }
         
-        return doctorRepository.save(doctor);
+        Doctor updated = doctorRepository.save(doctor);
+        referenceDataCache.invalidateAll();
+        doctorSearchIndex.refreshDoctor(id);
+        return updated;
     }
 
     @Override
@@ -75,20 +98,13 @@ public class DoctorServiceImpl implements DoctorService {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("医生不存在"));
         doctorRepository.delete(doctor);
+        referenceDataCache.invalidateAll();
+        doctorSearchIndex.removeDoctor(id);
     }
 
     @Override
-    public List<DoctorDTO> searchDoctors(String keyword) {
-        String lowered = keyword.toLowerCase();
-        return doctorRepository.findAll().stream()
-                .filter(doctor ->
-                        (doctor.getName() != null && doctor.getName().toLowerCase().contains(lowered)) ||
-                        (doctor.getDepartment() != null && doctor.getDepartment().getName() != null &&
-                                doctor.getDepartment().getName().toLowerCase().contains(lowered)) ||
-                        (doctor.getTitle() != null && doctor.getTitle().toLowerCase().contains(lowered))
-                )
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<DoctorDTO> searchDoctors(String keyword, Integer limit) {
+        return doctorSearchIndex.search(keyword, limit);
     }
 
     private DoctorDTO convertToDTO(Doctor doctor) {
@@ -0,0 +1,87 @@
+package com.hospital.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求存储：同一幂等键的重复请求直接返回首次执行的结果，记录按 TTL 过期清理
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    @Value("${booking.idempotency.ttl-minutes:1440}")
+    private Long ttlMinutes;
+
+    @Value("${booking.idempotency.wait-seconds:30}")
+    private Long waitSeconds;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 按幂等键执行操作：fingerprint 用于识别同一键被用于不同请求的情况
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object fingerprint, Supplier<T> action) {
+        long now = System.currentTimeMillis();
+        Entry created = new Entry(fingerprint, new CompletableFuture<>(), now + TimeUnit.MINUTES.toMillis(ttlMinutes));
+        Entry existing = entries.compute(key, (k, current) ->
+                current == null || current.expiresAt < now ? created : current);
+
+        if (existing != created) {
+            if (!Objects.equals(existing.fingerprint, fingerprint)) {
+                throw new RuntimeException("该幂等键已用于其他请求");
+            }
+            return (T) awaitResult(existing);
+        }
+
+        try {
+            T result = action.get();
+            created.result.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // 执行失败（包括 Error）不缓存，允许客户端使用同一幂等键重试，并唤醒等待中的重复请求
+            entries.remove(key, created);
+            created.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 每分钟清理过期记录
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanExpiredEntries() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+    }
+
+    private Object awaitResult(Entry entry) {
+        try {
+            return entry.result.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("相同请求正在处理中，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求被中断");
+        }
+    }
+
+    private record Entry(Object fingerprint, CompletableFuture<Object> result, long expiresAt) {
+    }
+}
@@ -0,0 +1,319 @@
+package com.hospital.service;
+
+import com.hospital.dto.AppointmentQueueDTO;
+import com.hospital.dto.LiveQueueDTO;
+import com.hospital.entity.Appointment;
+import com.hospital.entity.Schedule;
+import com.hospital.event.AppointmentStatusChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内的实时候诊队列：每个（医生, 排班时段）首次访问时从数据库加载，
+ * 之后由预约生命周期事件同步；读取只操作内存，队列锁内不访问数据库，
+ * 叫号的数据库事务在锁外执行，同一队列的叫号之间由独立的叫号锁串行。
+ * 服务重启后队列按数据库中的预约状态重建，正在就诊的患者重新进入候诊
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LiveQueueService {
+
+    private final ScheduleService scheduleService;
+    private final DoctorDashboardService doctorDashboardService;
+    private final AppointmentService appointmentService;
+    private final ServiceTimeEstimator serviceTimeEstimator;
+
+    private final Map<QueueKey, LiveQueue> queues = new ConcurrentHashMap<>();
+    // 正在从数据库加载的队列：加载期间提交的预约变更先记录在此，加载完成后按顺序补应用
+    private final Map<QueueKey, List<QueueChange>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 读取医生在指定时间所在时段的实时队列
+     */
+    public LiveQueueDTO getQueue(Long doctorId, LocalDateTime appointmentTime) {
+        LiveQueue queue = getOrLoad(doctorId, appointmentTime);
+        LiveQueueDTO dto;
+        synchronized (queue) {
+            dto = queue.toDTO();
+        }
+        scheduleService.findScheduleForDateTime(doctorId, appointmentTime).ifPresent(schedule ->
+                serviceTimeEstimator.applyEstimates(dto.getWaiting(), schedule, dto.getBlockStart(),
+                        dto.getCurrent() != null ? 1 : 0));
+        return dto;
+    }
+
+    /**
+     * 叫号：完成当前就诊患者，取出下一位候诊患者并确认，返回下一位患者（队列已空返回 null）。
+     * 队首患者在确认事务成功后才移出候诊队列，确认失败时留在队首
+     */
+    public AppointmentQueueDTO callNext(Long doctorId, LocalDateTime appointmentTime) {
+        LiveQueue queue = getOrLoad(doctorId, appointmentTime);
+        queue.callLock.lock();
+        try {
+            Long currentId;
+            synchronized (queue) {
+                currentId = queue.current != null ? queue.current.getAppointmentId() : null;
+            }
+            if (currentId != null) {
+                try {
+                    appointmentService.completeAppointment(currentId);
+                } catch (RuntimeException e) {
+                    // 当前患者已被取消或在其他入口完成，直接叫下一位
+                    log.warn("完成当前就诊失败，继续叫号: appointmentId={}, error={}", currentId, e.getMessage());
+                }
+                synchronized (queue) {
+                    if (queue.current != null && currentId.equals(queue.current.getAppointmentId())) {
+                        queue.current = null;
+                    }
+                }
+            }
+
+            while (true) {
+                AppointmentQueueDTO next;
+                Appointment.AppointmentStatus status;
+                synchronized (queue) {
+                    Map.Entry<QueueOrder, AppointmentQueueDTO> head = queue.waiting.firstEntry();
+                    if (head == null) {
+                        return null;
+                    }
+                    next = head.getValue();
+                    status = next.getStatus();
+                }
+                if (status == Appointment.AppointmentStatus.PENDING) {
+                    appointmentService.confirmAppointment(next.getAppointmentId());
+                }
+                synchronized (queue) {
+                    // 确认期间该患者可能已被并发取消并移出队列，此时改叫下一位
+                    if (!queue.remove(next.getAppointmentId())) {
+                        continue;
+                    }
+                    next.setStatus(Appointment.AppointmentStatus.CONFIRMED);
+                    next.setQueuePosition(0);
+                    queue.current = next;
+                    return copy(next, 0);
+                }
+            }
+        } finally {
+            queue.callLock.unlock();
+        }
+    }
+
+    /**
+     * 预约变更提交后同步已加载的队列；正在加载的队列先记录变更，加载完成后补应用
+     * （未加载的队列下次访问时从数据库加载）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        Appointment appointment = event.appointment();
+        if (queues.isEmpty() && pending.isEmpty()) {
+            return;
+        }
+        scheduleService.findScheduleForDateTime(appointment.getDoctorId(), appointment.getAppointmentTime())
+                .map(schedule -> keyOf(appointment.getDoctorId(), appointment.getAppointmentTime(), schedule))
+                .filter(key -> queues.containsKey(key) || pending.containsKey(key))
+                .ifPresent(key -> {
+                    // 新增候诊需要的队列项在加锁前查询
+                    QueueChange change = new QueueChange(appointment,
+                            appointment.getStatus() == Appointment.AppointmentStatus.PENDING
+                                    ? doctorDashboardService.getQueueEntry(appointment.getId()) : null);
+                    boolean[] recorded = {false};
+                    pending.computeIfPresent(key, (k, changes) -> {
+                        changes.add(change);
+                        recorded[0] = true;
+                        return changes;
+                    });
+                    LiveQueue queue = queues.get(key);
+                    if (!recorded[0] && queue != null) {
+                        synchronized (queue) {
+                            apply(queue, change);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 每天凌晨清理已过去日期的队列
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void evictPastQueues() {
+        LocalDate today = LocalDate.now();
+        queues.keySet().removeIf(key -> key.blockStart().toLocalDate().isBefore(today));
+    }
+
+    private void apply(LiveQueue queue, QueueChange change) {
+        Appointment appointment = change.appointment();
+        Long appointmentId = appointment.getId();
+        boolean isCurrent = queue.current != null && appointmentId.equals(queue.current.getAppointmentId());
+        switch (appointment.getStatus()) {
+            case PENDING -> {
+                if (!isCurrent && !queue.orderById.containsKey(appointmentId)) {
+                    queue.add(change.entry());
+                }
+            }
+            case CONFIRMED -> {
+                QueueOrder order = queue.orderById.get(appointmentId);
+                if (order != null) {
+                    queue.waiting.get(order).setStatus(Appointment.AppointmentStatus.CONFIRMED);
+                }
+            }
+            case COMPLETED -> {
+                if (isCurrent) {
+                    queue.current = null;
+                    queue.completedCount++;
+                } else if (queue.remove(appointmentId)) {
+                    queue.completedCount++;
+                }
+            }
+            case CANCELLED, EXPIRED -> {
+                if (isCurrent) {
+                    queue.current = null;
+                } else {
+                    queue.remove(appointmentId);
+                }
+            }
+        }
+    }
+
+    private LiveQueue getOrLoad(Long doctorId, LocalDateTime appointmentTime) {
+        Schedule schedule = scheduleService.findScheduleForDateTime(doctorId, appointmentTime)
+                .orElseThrow(() -> new RuntimeException("该时间不在医生的工作时间段内"));
+        QueueKey key = keyOf(doctorId, appointmentTime, schedule);
+        LiveQueue cached = queues.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean[] loaded = {false};
+        LiveQueue queue = queues.computeIfAbsent(key, k -> {
+            pending.put(k, new ArrayList<>());
+            try {
+                LiveQueue created = load(k, LocalDateTime.of(appointmentTime.toLocalDate(), schedule.getEndTime()));
+                loaded[0] = true;
+                return created;
+            } catch (RuntimeException e) {
+                pending.remove(k);
+                throw e;
+            }
+        });
+        if (loaded[0]) {
+            // 队列已发布：在队列锁内取出加载期间记录的变更并按提交顺序补应用，
+            // 之后到达的事件会等待队列锁，保证不会先于这些变更生效
+            synchronized (queue) {
+                List<QueueChange> missed = pending.remove(key);
+                if (missed != null) {
+                    missed.forEach(change -> apply(queue, change));
+                }
+            }
+        }
+        return queue;
+    }
+
+    private LiveQueue load(QueueKey key, LocalDateTime blockEnd) {
+        LiveQueue queue = new LiveQueue(key, blockEnd);
+        for (AppointmentQueueDTO entry : doctorDashboardService.getBlockQueue(key.doctorId(), key.blockStart(), blockEnd)) {
+            if (entry.getStatus() == Appointment.AppointmentStatus.COMPLETED) {
+                queue.completedCount++;
+            } else {
+                queue.add(entry);
+            }
+        }
+        return queue;
+    }
+
+    private QueueKey keyOf(Long doctorId, LocalDateTime appointmentTime, Schedule schedule) {
+        return new QueueKey(doctorId, LocalDateTime.of(appointmentTime.toLocalDate(), schedule.getStartTime()));
+    }
+
+    private static class LiveQueue {
+        private final QueueKey key;
+        private final LocalDateTime blockEnd;
+        // 候诊患者按（预约时间, 预约ID）排序，叫号取首项
+        private final TreeMap<QueueOrder, AppointmentQueueDTO> waiting = new TreeMap<>();
+        private final Map<Long, QueueOrder> orderById = new HashMap<>();
+        // 串行同一队列的叫号，叫号期间的数据库事务不占用队列锁
+        private final ReentrantLock callLock = new ReentrantLock();
+        private AppointmentQueueDTO current;
+        private int completedCount;
+
+        private LiveQueue(QueueKey key, LocalDateTime blockEnd) {
+            this.key = key;
+            this.blockEnd = blockEnd;
+        }
+
+        private void add(AppointmentQueueDTO entry) {
+            QueueOrder order = new QueueOrder(entry.getAppointmentTime(), entry.getAppointmentId());
+            waiting.put(order, entry);
+            orderById.put(entry.getAppointmentId(), order);
+        }
+
+        private boolean remove(Long appointmentId) {
+            QueueOrder order = orderById.remove(appointmentId);
+            return order != null && waiting.remove(order) != null;
+        }
+
+        private LiveQueueDTO toDTO() {
+            LiveQueueDTO dto = new LiveQueueDTO();
+            dto.setDoctorId(key.doctorId());
+            dto.setBlockStart(key.blockStart());
+            dto.setBlockEnd(blockEnd);
+            dto.setCurrent(current != null ? copy(current, 0) : null);
+            // 返回副本，避免序列化时与队列变更并发
+            List<AppointmentQueueDTO> waitingList = new ArrayList<>(waiting.size());
+            int ahead = current != null ? 1 : 0;
+            for (AppointmentQueueDTO entry : waiting.values()) {
+                waitingList.add(copy(entry, ahead++)); // 前面还有几人（含正在就诊）
+            }
+            dto.setWaiting(waitingList);
+            dto.setCompletedCount(completedCount);
+            return dto;
+        }
+    }
+
+    private static AppointmentQueueDTO copy(AppointmentQueueDTO source, int queuePosition) {
+        AppointmentQueueDTO dto = new AppointmentQueueDTO();
+        dto.setAppointmentId(source.getAppointmentId());
+        dto.setPatientId(source.getPatientId());
+        dto.setPatientName(source.getPatientName());
+        dto.setPatientPhone(source.getPatientPhone());
+        dto.setPatientEmail(source.getPatientEmail());
+        dto.setAppointmentTime(source.getAppointmentTime());
+        dto.setStatus(source.getStatus());
+        dto.setNotes(source.getNotes());
+        dto.setQueuePosition(queuePosition);
+        return dto;
+    }
+
+    private record QueueKey(Long doctorId, LocalDateTime blockStart) {
+    }
+
+    // 一次预约变更；新增候诊时附带加锁前查好的队列项
+    private record QueueChange(Appointment appointment, AppointmentQueueDTO entry) {
+    }
+
+    private record QueueOrder(LocalDateTime appointmentTime, Long appointmentId) implements Comparable<QueueOrder> {
+        private static final Comparator<QueueOrder> ORDER = Comparator
+                .comparing(QueueOrder::appointmentTime)
+                .thenComparing(QueueOrder::appointmentId);
+
+        @Override
+        public int compareTo(QueueOrder other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.hospital.service;
+
+import com.hospital.dto.AdminOverviewStatsDTO;
+import com.hospital.entity.Appointment;
+import com.hospital.event.AppointmentStatusChangedEvent;
+import com.hospital.repository.AppointmentRepository;
+import com.hospital.repository.DepartmentRepository;
+import com.hospital.repository.DoctorRepository;
+import com.hospital.repository.PatientRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 管理端概览统计快照：结果缓存较短时间，并发请求共享同一次计算；
+ * 未命中时各项计数并行查询。预约或医生变更提交后提前失效
+ */
+@Service
+@RequiredArgsConstructor
+public class OverviewStatsService {
+
+    private final PatientRepository patientRepository;
+    private final DoctorRepository doctorRepository;
+    private final DepartmentRepository departmentRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    @Value("${stats.overview.ttl-seconds:30}")
+    private Long ttlSeconds;
+
+    @Value("${stats.overview.threads:6}")
+    private Integer threads;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("overview-stats-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * 读取概览统计：快照有效时直接返回，否则由一个请求计算，其余请求等待同一结果
+     */
+    public AdminOverviewStatsDTO getOverviewStats() {
+        while (true) {
+            long now = System.currentTimeMillis();
+            Snapshot current = snapshot.get();
+            if (current != null && current.expiresAt > now) {
+                return await(current.result);
+            }
+
+            Snapshot created = new Snapshot(new CompletableFuture<>(), now + TimeUnit.SECONDS.toMillis(ttlSeconds));
+            if (!snapshot.compareAndSet(current, created)) {
+                continue;
+            }
+
+            try {
+                AdminOverviewStatsDTO stats = compute();
+                created.result.complete(stats);
+                return stats;
+            } catch (RuntimeException e) {
+                // 计算失败不缓存，下一个请求重新计算
+                snapshot.compareAndSet(created, null);
+                created.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 失效快照
+     */
+    public void invalidate() {
+        AfterCommit.runNowAndAfterCommit(() -> snapshot.set(null));
+    }
+
+    /**
+     * 预约创建或状态变更提交后失效快照
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        snapshot.set(null);
+    }
+
+    private AdminOverviewStatsDTO compute() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime startOfToday = today.atStartOfDay();
+        LocalDateTime endOfToday = today.plusDays(1).atStartOfDay().minusNanos(1);
+        LocalDateTime startOfWeek = today.with(DayOfWeek.MONDAY).atStartOfDay();
+
+        CompletableFuture<Long> patients = count(patientRepository::count);
+        CompletableFuture<Long> doctors = count(doctorRepository::count);
+        CompletableFuture<Long> departments = count(departmentRepository::count);
+        CompletableFuture<Long> todays = count(() ->
+                appointmentRepository.countByAppointmentTimeBetween(startOfToday, endOfToday));
+        CompletableFuture<Long> week = count(() ->
+                appointmentRepository.countByAppointmentTimeBetween(startOfWeek, endOfToday));
+        CompletableFuture<Long> pending = count(() ->
+                appointmentRepository.countByStatus(Appointment.AppointmentStatus.PENDING));
+
+        AdminOverviewStatsDTO dto = new AdminOverviewStatsDTO();
+        dto.setTotalPatients(await(patients));
+        dto.setTotalDoctors(await(doctors));
+        dto.setTotalDepartments(await(departments));
+        dto.setTodaysAppointments(await(todays));
+        dto.setWeekAppointments(await(week));
+        dto.setPendingAppointments(await(pending));
+        return dto;
+    }
+
+    private CompletableFuture<Long> count(Supplier<Long> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage());
+        }
+    }
+
+    private record Snapshot(CompletableFuture<AdminOverviewStatsDTO> result, long expiresAt) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.hospital.service;
+
+import com.hospital.dto.AppointmentQueueDTO;
+import com.hospital.dto.QueueDeltaDTO;
+import com.hospital.entity.Appointment;
+import com.hospital.entity.Schedule;
+import com.hospital.event.AppointmentStatusChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 医生工作台就诊队列的服务端推送：每个（医生, 排班时段）维护一组 SSE 连接，
+ * 订阅时先推送完整快照，之后预约新建、确认、完成、取消时只推送增量
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueueStreamService {
+
+    private final ScheduleService scheduleService;
+    private final DoctorDashboardService doctorDashboardService;
+
+    @Value("${booking.queue-stream.timeout-minutes:30}")
+    private Long timeoutMinutes;
+
+    private final Map<StreamKey, List<SseEmitter>> streams = new ConcurrentHashMap<>();
+    // 单线程推送，保证同一队列的增量按提交顺序送达，且不占用提交事务的线程
+    private ExecutorService publisher;
+
+    @PostConstruct
+    public void start() {
+        publisher = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("queue-stream-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdown();
+        streams.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    /**
+     * 订阅医生在指定时间所在排班时段的队列
+     */
+    public SseEmitter subscribe(Long doctorId, LocalDateTime appointmentTime) {
+        Schedule schedule = scheduleService.findScheduleForDateTime(doctorId, appointmentTime)
+                .orElseThrow(() -> new RuntimeException("该时间不在医生的工作时间段内"));
+        StreamKey key = new StreamKey(doctorId, LocalDateTime.of(appointmentTime.toLocalDate(), schedule.getStartTime()));
+        LocalDateTime blockEnd = LocalDateTime.of(appointmentTime.toLocalDate(), schedule.getEndTime());
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes));
+        streams.compute(key, (k, emitters) -> {
+            List<SseEmitter> target = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            target.add(emitter);
+            return target;
+        });
+        emitter.onCompletion(() -> remove(key, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(key, emitter));
+
+        // 快照也经推送线程发送，保证不会排在订阅之后产生的增量后面
+        publisher.execute(() -> {
+            try {
+                List<AppointmentQueueDTO> snapshot = doctorDashboardService.getBlockQueue(doctorId, key.blockStart(), blockEnd);
+                emitter.send(SseEmitter.event().name("snapshot").data(snapshot));
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 预约变更提交后推送增量（仅当该时段有订阅者时才查询）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        Appointment appointment = event.appointment();
+        if (streams.isEmpty()) {
+            return;
+        }
+        publisher.execute(() -> {
+            try {
+                publishDelta(event, appointment);
+            } catch (Exception e) {
+                log.warn("队列增量推送失败: appointmentId={}, error={}", appointment.getId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 每30秒发送心跳，保持连接并清理已断开的订阅
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void heartbeat() {
+        streams.forEach((key, emitters) -> emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (Exception e) {
+                remove(key, emitter);
+            }
+        }));
+    }
+
+    private void publishDelta(AppointmentStatusChangedEvent event, Appointment appointment) {
+        Schedule schedule = scheduleService.findScheduleForDateTime(
+                appointment.getDoctorId(), appointment.getAppointmentTime()).orElse(null);
+        if (schedule == null) {
+            return;
+        }
+        StreamKey key = new StreamKey(appointment.getDoctorId(),
+                LocalDateTime.of(appointment.getAppointmentTime().toLocalDate(), schedule.getStartTime()));
+        List<SseEmitter> emitters = streams.get(key);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+
+        QueueDeltaDTO delta = new QueueDeltaDTO();
+        delta.setAppointmentId(appointment.getId());
+        delta.setOccurredAt(LocalDateTime.now());
+        if (appointment.getStatus() == Appointment.AppointmentStatus.CANCELLED
+                || appointment.getStatus() == Appointment.AppointmentStatus.EXPIRED) {
+            delta.setType(QueueDeltaDTO.DeltaType.REMOVED);
+        } else {
+            delta.setType(event.previousStatus() == null ? QueueDeltaDTO.DeltaType.ADDED : QueueDeltaDTO.DeltaType.UPDATED);
+            delta.setEntry(doctorDashboardService.getQueueEntry(appointment.getId()));
+        }
+
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("delta").data(delta));
+            } catch (IOException | IllegalStateException e) {
+                remove(key, emitter);
+            }
+        }
+    }
+
+    private void remove(StreamKey key, SseEmitter emitter) {
+        streams.computeIfPresent(key, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private record StreamKey(Long doctorId, LocalDateTime blockStart) {
+    }
+}
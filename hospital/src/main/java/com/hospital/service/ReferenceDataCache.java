@@ -0,0 +1,168 @@
+package com.hospital.service;
+
+import com.hospital.dto.DepartmentDTO;
+import com.hospital.dto.DoctorDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 参考数据的进程内缓存：科室列表、医生资料、科室下的医生列表。
+ * 各区域按容量做 LRU 淘汰；缓存项记录加载时的全局版本号，
+ * 管理端写入科室或医生后递增版本号即整体失效。命中与未命中计数通过 actuator 指标暴露。
+ * 返回的 DTO 为共享只读对象，调用方不得修改
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final String ALL_DEPARTMENTS = "all";
+
+    private final AtomicLong version = new AtomicLong();
+    private final Region<String, List<DepartmentDTO>> departments;
+    private final Region<Long, DoctorDTO> doctors;
+    private final Region<Long, List<DoctorDTO>> doctorsByDepartment;
+
+    public ReferenceDataCache(MeterRegistry meterRegistry,
+                              @Value("${cache.reference.max-doctors:2000}") int maxDoctors,
+                              @Value("${cache.reference.max-departments:200}") int maxDepartments) {
+        this.departments = new Region<>("departments", 1, meterRegistry);
+        this.doctors = new Region<>("doctors", maxDoctors, meterRegistry);
+        this.doctorsByDepartment = new Region<>("doctorsByDepartment", maxDepartments, meterRegistry);
+        Gauge.builder("reference.cache.version", version, AtomicLong::get)
+                .description("参考数据缓存版本号")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 全部科室
+     */
+    public List<DepartmentDTO> getDepartments(Supplier<List<DepartmentDTO>> loader) {
+        return get(departments, ALL_DEPARTMENTS, loader);
+    }
+
+    /**
+     * 单个医生资料，加载结果为 null 时不缓存
+     */
+    public DoctorDTO getDoctor(Long doctorId, Supplier<DoctorDTO> loader) {
+        return get(doctors, doctorId, loader);
+    }
+
+    /**
+     * 批量获取医生资料，未命中的医生合并为一次加载
+     */
+    public List<DoctorDTO> getDoctors(Collection<Long> doctorIds, Function<Collection<Long>, List<DoctorDTO>> loader) {
+        long loadedAt = version.get();
+        Map<Long, DoctorDTO> result = new LinkedHashMap<>();
+        List<Long> missing = doctorIds.stream()
+                .filter(doctorId -> {
+                    DoctorDTO cached = doctors.get(doctorId, loadedAt);
+                    if (cached != null) {
+                        result.put(doctorId, cached);
+                    }
+                    return cached == null;
+                })
+                .toList();
+        if (!missing.isEmpty()) {
+            for (DoctorDTO doctor : loader.apply(missing)) {
+                doctors.put(doctor.getId(), doctor, loadedAt);
+                result.put(doctor.getId(), doctor);
+            }
+        }
+        return List.copyOf(result.values());
+    }
+
+    /**
+     * 科室下的医生列表
+     */
+    public List<DoctorDTO> getDoctorsByDepartment(Long departmentId, Supplier<List<DoctorDTO>> loader) {
+        return get(doctorsByDepartment, departmentId, loader);
+    }
+
+    /**
+     * 整体失效：递增版本号并清空各区域
+     */
+    public void invalidateAll() {
+        AfterCommit.runNowAndAfterCommit(this::bump);
+    }
+
+    private void bump() {
+        version.incrementAndGet();
+        departments.clear();
+        doctors.clear();
+        doctorsByDepartment.clear();
+    }
+
+    private <K, V> V get(Region<K, V> region, K key, Supplier<V> loader) {
+        long loadedAt = version.get();
+        V cached = region.get(key, loadedAt);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.get();
+        if (loaded != null) {
+            region.put(key, loaded, loadedAt);
+        }
+        return loaded;
+    }
+
+    /**
+     * 按访问顺序淘汰的有界缓存区域；版本号与当前不一致的缓存项视为未命中
+     */
+    private final class Region<K, V> {
+        private final Map<K, Versioned<V>> entries;
+        private final Counter hits;
+        private final Counter misses;
+
+        private Region(String name, int maxSize, MeterRegistry meterRegistry) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Versioned<V>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+            this.hits = Counter.builder("reference.cache.requests").tag("cache", name).tag("result", "hit")
+                    .register(meterRegistry);
+            this.misses = Counter.builder("reference.cache.requests").tag("cache", name).tag("result", "miss")
+                    .register(meterRegistry);
+            Gauge.builder("reference.cache.size", this, Region::size).tag("cache", name).register(meterRegistry);
+        }
+
+        private synchronized V get(K key, long currentVersion) {
+            Versioned<V> entry = entries.get(key);
+            if (entry == null || entry.version != currentVersion) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+
+        private synchronized void put(K key, V value, long loadedAt) {
+            // 加载期间发生过失效则丢弃本次结果
+            if (loadedAt == version.get()) {
+                entries.put(key, new Versioned<>(value, loadedAt));
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private record Versioned<V>(V value, long version) {
+    }
+}
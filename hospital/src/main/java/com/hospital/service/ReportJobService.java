@@ -0,0 +1,269 @@
+package com.hospital.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.dto.AdminDailyAppointmentDTO;
+import com.hospital.dto.AdminDoctorWorkloadDTO;
+import com.hospital.dto.ReportJobDTO;
+import com.hospital.dto.ReportJobRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 异步统计报表：任务在独立的有界线程池中按日期分段计算，结果写入本地文件供下载，
+ * 大范围统计不再占用请求线程和长时间持有数据库连接
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportJobService {
+
+    private final AdminService adminService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stats.report.threads:2}")
+    private Integer threads;
+
+    @Value("${stats.report.queue-capacity:20}")
+    private Integer queueCapacity;
+
+    @Value("${stats.report.partition-days:31}")
+    private Integer partitionDays;
+
+    @Value("${stats.report.dir:${java.io.tmpdir}/hospital-reports}")
+    private String reportDir;
+
+    @Value("${stats.report.retention-hours:24}")
+    private Long retentionHours;
+
+    private final Map<String, ReportJobDTO> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(Paths.get(reportDir));
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("report-job-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交报表任务，返回任务凭证
+     */
+    public ReportJobDTO submit(ReportJobRequest request) {
+        if (request.getType() == null) {
+            throw new RuntimeException("报表类型不能为空");
+        }
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            throw new RuntimeException("报表日期范围不能为空");
+        }
+        if (request.getEndDate().isBefore(request.getStartDate())) {
+            throw new RuntimeException("结束日期不能早于开始日期");
+        }
+        if (request.getType() == ReportJobDTO.ReportType.DOCTOR_WORKLOAD) {
+            workloadComparator(request.getSortBy());
+            if (request.getLimit() != null && request.getLimit() <= 0) {
+                throw new RuntimeException("返回条数必须大于0");
+            }
+        }
+
+        ReportJobDTO job = new ReportJobDTO();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setType(request.getType());
+        job.setStartDate(request.getStartDate());
+        job.setEndDate(request.getEndDate());
+        job.setStatus(ReportJobDTO.JobStatus.QUEUED);
+        job.setCreatedAt(LocalDateTime.now());
+        jobs.put(job.getJobId(), job);
+
+        try {
+            executor.execute(() -> run(job.getJobId(), request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            throw new RuntimeException("报表任务过多，请稍后重试");
+        }
+        return job;
+    }
+
+    /**
+     * 查询报表任务状态
+     */
+    public ReportJobDTO getJob(String jobId) {
+        ReportJobDTO job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("报表任务不存在或已过期");
+        }
+        return job;
+    }
+
+    /**
+     * 已完成报表的结果文件
+     */
+    public Path getResultFile(String jobId) {
+        ReportJobDTO job = getJob(jobId);
+        if (job.getStatus() != ReportJobDTO.JobStatus.COMPLETED) {
+            throw new RuntimeException("报表尚未生成完成");
+        }
+        return resultFile(jobId);
+    }
+
+    /**
+     * 每10分钟清理超过保留时间的任务及其结果文件
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void cleanExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusHours(retentionHours);
+        jobs.values().removeIf(job -> {
+            if (job.getCompletedAt() == null || !job.getCompletedAt().isBefore(threshold)) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(resultFile(job.getJobId()));
+            } catch (IOException e) {
+                log.warn("删除报表文件失败: jobId={}", job.getJobId(), e);
+            }
+            return true;
+        });
+    }
+
+    private void run(String jobId, ReportJobRequest request) {
+        update(jobId, job -> job.setStatus(ReportJobDTO.JobStatus.RUNNING));
+        try {
+            Object rows = switch (request.getType()) {
+                case DAILY_APPOINTMENTS -> buildDailyReport(request);
+                case DOCTOR_WORKLOAD -> buildWorkloadReport(request);
+            };
+
+            Path target = resultFile(jobId);
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), rows);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long fileSize = Files.size(target);
+            update(jobId, job -> {
+                job.setFileSize(fileSize);
+                job.setStatus(ReportJobDTO.JobStatus.COMPLETED);
+                job.setMessage("报表生成成功");
+                job.setCompletedAt(LocalDateTime.now());
+            });
+        } catch (Throwable e) {
+            // 包括 Error 在内的任何失败都将任务置为终态，保证会被过期清理
+            log.error("报表生成失败: jobId={}", jobId, e);
+            update(jobId, job -> {
+                job.setStatus(ReportJobDTO.JobStatus.FAILED);
+                job.setMessage(e.getMessage());
+                job.setCompletedAt(LocalDateTime.now());
+            });
+        }
+    }
+
+    private List<AdminDailyAppointmentDTO> buildDailyReport(ReportJobRequest request) {
+        List<AdminDailyAppointmentDTO> rows = new ArrayList<>();
+        for (LocalDate[] partition : partitions(request.getStartDate(), request.getEndDate())) {
+            rows.addAll(adminService.getDailyAppointmentStats(partition[0], partition[1]));
+        }
+        return rows;
+    }
+
+    private List<AdminDoctorWorkloadDTO> buildWorkloadReport(ReportJobRequest request) {
+        // 各分段按医生累加，排序与条数截取在合并后进行
+        Map<Long, AdminDoctorWorkloadDTO> merged = new LinkedHashMap<>();
+        for (LocalDate[] partition : partitions(request.getStartDate(), request.getEndDate())) {
+            for (AdminDoctorWorkloadDTO row : adminService.getDoctorWorkload(partition[0], partition[1], null, null)) {
+                AdminDoctorWorkloadDTO total = merged.putIfAbsent(row.getDoctorId(), row);
+                if (total != null) {
+                    total.setTotalAppointments(total.getTotalAppointments() + row.getTotalAppointments());
+                    total.setCompletedAppointments(total.getCompletedAppointments() + row.getCompletedAppointments());
+                    total.setPendingAppointments(total.getPendingAppointments() + row.getPendingAppointments());
+                }
+            }
+        }
+
+        return merged.values().stream()
+                .sorted(workloadComparator(request.getSortBy()))
+                .limit(request.getLimit() != null ? request.getLimit() : Long.MAX_VALUE)
+                .toList();
+    }
+
+    private Comparator<AdminDoctorWorkloadDTO> workloadComparator(String sortBy) {
+        Comparator<AdminDoctorWorkloadDTO> byDoctor = Comparator.comparing(AdminDoctorWorkloadDTO::getDoctorId);
+        if (sortBy == null || sortBy.isBlank()) {
+            return byDoctor;
+        }
+        Comparator<AdminDoctorWorkloadDTO> byCount = switch (sortBy) {
+            case "total" -> Comparator.comparingLong(AdminDoctorWorkloadDTO::getTotalAppointments);
+            case "completed" -> Comparator.comparingLong(AdminDoctorWorkloadDTO::getCompletedAppointments);
+            case "pending" -> Comparator.comparingLong(AdminDoctorWorkloadDTO::getPendingAppointments);
+            default -> throw new RuntimeException("不支持的排序字段: " + sortBy);
+        };
+        return byCount.reversed().thenComparing(byDoctor);
+    }
+
+    private List<LocalDate[]> partitions(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate[]> partitions = new ArrayList<>();
+        for (LocalDate start = startDate; !start.isAfter(endDate); start = start.plusDays(partitionDays)) {
+            LocalDate end = start.plusDays(partitionDays - 1L);
+            partitions.add(new LocalDate[]{start, end.isAfter(endDate) ? endDate : end});
+        }
+        return partitions;
+    }
+
+    private Path resultFile(String jobId) {
+        return Paths.get(reportDir, jobId + ".json");
+    }
+
+    /**
+     * 任务状态以不可变快照保存：每次变更复制当前快照修改后整体替换，
+     * 轮询线程读到的始终是完整的某一版本
+     */
+    private void update(String jobId, Consumer<ReportJobDTO> change) {
+        jobs.computeIfPresent(jobId, (id, current) -> {
+            ReportJobDTO next = copy(current);
+            change.accept(next);
+            return next;
+        });
+    }
+
+    private ReportJobDTO copy(ReportJobDTO job) {
+        ReportJobDTO copy = new ReportJobDTO();
+        copy.setJobId(job.getJobId());
+        copy.setType(job.getType());
+        copy.setStartDate(job.getStartDate());
+        copy.setEndDate(job.getEndDate());
+        copy.setStatus(job.getStatus());
+        copy.setMessage(job.getMessage());
+        copy.setFileSize(job.getFileSize());
+        copy.setCreatedAt(job.getCreatedAt());
+        copy.setCompletedAt(job.getCompletedAt());
+        return copy;
+    }
+}
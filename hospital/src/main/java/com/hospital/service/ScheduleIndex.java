@@ -0,0 +1,139 @@
+package com.hospital.service;
+
+import com.hospital.entity.Schedule;
+import com.hospital.repository.ScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 医生周排班的进程内索引：doctorId → 星期 → 按开始时间排序的工作时段。
+ * 排班很少变化，预约热路径上的时段匹配直接走内存；排班写入后在事务提交时失效对应医生。
+ * 返回的 Schedule 为共享只读对象，调用方不得修改。
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduleIndex {
+
+    private final ScheduleRepository scheduleRepository;
+
+    private final Map<Long, DoctorSchedules> doctors = new ConcurrentHashMap<>();
+    // 每次失效递增，加载线程据此丢弃与失效并发的旧数据
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 查找包含指定时间的排班时段（左闭右开）
+     */
+    public Optional<Schedule> findBlock(Long doctorId, LocalDateTime time) {
+        NavigableMap<LocalTime, Schedule> blocks = get(doctorId).byDay.get(time.getDayOfWeek());
+        if (blocks == null) {
+            return Optional.empty();
+        }
+        LocalTime target = time.toLocalTime();
+        Map.Entry<LocalTime, Schedule> floor = blocks.floorEntry(target);
+        if (floor == null || !target.isBefore(floor.getValue().getEndTime())) {
+            return Optional.empty();
+        }
+        return Optional.of(floor.getValue());
+    }
+
+    /**
+     * 医生某个星期几的全部排班，按开始时间排序
+     */
+    public List<Schedule> getSchedules(Long doctorId, DayOfWeek dayOfWeek) {
+        NavigableMap<LocalTime, Schedule> blocks = get(doctorId).byDay.get(dayOfWeek);
+        return blocks == null ? List.of() : List.copyOf(blocks.values());
+    }
+
+    /**
+     * 医生的全部排班
+     */
+    public List<Schedule> getSchedules(Long doctorId) {
+        return get(doctorId).all;
+    }
+
+    /**
+     * 批量获取多个医生的排班，未命中的医生合并为一次查询加载
+     */
+    public Map<Long, List<Schedule>> getSchedules(Collection<Long> doctorIds) {
+        Map<Long, List<Schedule>> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            DoctorSchedules cached = doctors.get(doctorId);
+            if (cached != null) {
+                result.put(doctorId, cached.all);
+            } else {
+                missing.add(doctorId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing).forEach((doctorId, schedules) -> result.put(doctorId, schedules.all));
+        }
+        return result;
+    }
+
+    /**
+     * 失效医生的排班索引
+     */
+    public void invalidate(Long doctorId) {
+        AfterCommit.runNowAndAfterCommit(() -> evict(doctorId));
+    }
+
+    private void evict(Long doctorId) {
+        generation.incrementAndGet();
+        doctors.remove(doctorId);
+    }
+
+    private DoctorSchedules get(Long doctorId) {
+        DoctorSchedules cached = doctors.get(doctorId);
+        return cached != null ? cached : load(List.of(doctorId)).get(doctorId);
+    }
+
+    private Map<Long, DoctorSchedules> load(Collection<Long> doctorIds) {
+        long loadedAt = generation.get();
+        Map<Long, List<Schedule>> grouped = new HashMap<>();
+        doctorIds.forEach(doctorId -> grouped.put(doctorId, new ArrayList<>()));
+        for (Schedule schedule : scheduleRepository.findByDoctorIdIn(doctorIds)) {
+            grouped.get(schedule.getDoctorId()).add(schedule);
+        }
+
+        Map<Long, DoctorSchedules> loaded = new HashMap<>();
+        grouped.forEach((doctorId, schedules) -> loaded.put(doctorId, new DoctorSchedules(schedules)));
+        doctors.putAll(loaded);
+        // 加载期间发生过失效则撤回本次结果，下次访问重新加载
+        if (generation.get() != loadedAt) {
+            loaded.forEach(doctors::remove);
+        }
+        return loaded;
+    }
+
+    private static class DoctorSchedules {
+        private final List<Schedule> all;
+        private final Map<DayOfWeek, NavigableMap<LocalTime, Schedule>> byDay = new EnumMap<>(DayOfWeek.class);
+
+        private DoctorSchedules(List<Schedule> schedules) {
+            for (Schedule schedule : schedules) {
+                byDay.computeIfAbsent(schedule.getDayOfWeek(), day -> new TreeMap<>())
+                        .putIfAbsent(schedule.getStartTime(), schedule);
+            }
+            List<Schedule> sorted = new ArrayList<>();
+            byDay.values().forEach(blocks -> sorted.addAll(blocks.values()));
+            this.all = Collections.unmodifiableList(sorted);
+        }
+    }
+}
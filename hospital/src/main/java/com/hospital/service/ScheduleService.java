@@ -8,7 +8,10 @@ import com.hospital.entity.Schedule;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface ScheduleService {
     
@@ -18,12 +21,18 @@ public interface ScheduleService {
     // 获取医生的所有排班
     List<ScheduleDTO> getSchedulesByDoctorId(Long doctorId);
     
+    // 批量获取多个医生的排班（按医生ID分组）
+    Map<Long, List<Schedule>> getSchedulesByDoctorIds(Collection<Long> doctorIds);
+    
     // 获取医生本周的排班
     List<ScheduleDTO> getDoctorSchedulesForWeek(Long doctorId);
     
     // 获取医生指定日期的可用时间段
     List<TimeSlotDTO> getAvailableTimeSlots(Long doctorId, LocalDate date);
 
+    // 获取医生在日期范围内的30分钟时间段网格（按小时段统计预约人数）
+    List<TimeSlotDTO> getSlotGrid(Long doctorId, LocalDate startDate, LocalDate endDate);
+
     // 获取指定科室（可选指定医生）在日期范围内有号源的日期
     List<LocalDate> getAvailableDates(Long departmentId, Long doctorId, LocalDate startDate, LocalDate endDate);
     
@@ -33,6 +42,9 @@ public interface ScheduleService {
     // 检查时间段是否已满员
     boolean isTimeSlotFull(Long doctorId, LocalDateTime appointmentTime);
     
+    // 查找预约时间所在的排班时段
+    Optional<Schedule> findScheduleForDateTime(Long doctorId, LocalDateTime appointmentTime);
+    
     // 获取时间段当前预约人数
     int getCurrentAppointmentCount(Long doctorId, LocalDateTime appointmentTime);
     
@@ -1,10 +1,10 @@
 package com.hospital.service;
 
+import com.hospital.dto.DoctorDTO;
 import com.hospital.dto.ScheduleDTO;
 import com.hospital.dto.CreateScheduleRequest;
 import com.hospital.dto.TimeSlotDTO;
 import com.hospital.entity.Schedule;
-import com.hospital.repository.DoctorRepository;
 import com.hospital.repository.ScheduleRepository;
 import com.hospital.repository.AppointmentRepository;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +16,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,10 +26,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ScheduleServiceImpl implements ScheduleService {
     
+    private static final int SLOT_MINUTES = 30;
+    private static final int MAX_GRID_DAYS = 31;
+    
     private final ScheduleRepository scheduleRepository;
     private final AppointmentRepository appointmentRepository;
     private final DoctorService doctorService;
-    private final DoctorRepository doctorRepository;
+    private final SlotCapacityService slotCapacityService;
+    private final ScheduleIndex scheduleIndex;
+    private final AvailabilityEngine availabilityEngine;
 
     @Override
     @Transactional
@@ -63,7 +70,10 @@ public class ScheduleServiceImpl implements ScheduleService {
         schedule.setEndTime(request.getEndTime());
         schedule.setMaxPatients(request.getMaxPatients() != null ? request.getMaxPatients() : 10);
         
-        return scheduleRepository.save(schedule);
+        Schedule saved = scheduleRepository.save(schedule);
+        scheduleIndex.invalidate(saved.getDoctorId());
+        slotCapacityService.materializeSchedule(saved);
+        return saved;
     }
 
     @Override
@@ -74,6 +84,14 @@ public class ScheduleServiceImpl implements ScheduleService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Map<Long, List<Schedule>> getSchedulesByDoctorIds(Collection<Long> doctorIds) {
+        if (doctorIds.isEmpty()) {
+            return Map.of();
+        }
+        return scheduleIndex.getSchedules(doctorIds);
+    }
+
     @Override
     public List<ScheduleDTO> getDoctorSchedulesForWeek(Long doctorId) {
         List<Schedule> allSchedules = scheduleRepository.findByDoctorId(doctorId);
@@ -85,14 +103,17 @@ public class ScheduleServiceImpl implements ScheduleService {
     @Override
     public List<TimeSlotDTO> getAvailableTimeSlots(Long doctorId, LocalDate date) {
         DayOfWeek dayOfWeek = date.getDayOfWeek();
-        List<Schedule> schedules = scheduleRepository.findByDoctorIdAndDayOfWeek(doctorId, dayOfWeek);
+        List<Schedule> schedules = scheduleIndex.getSchedules(doctorId, dayOfWeek);
+        // 已预约人数读取可预约日历，一次索引范围扫描覆盖当天全部时段
+        Map<AvailabilityEngine.BlockKey, Integer> occupancy = availabilityEngine.getBookedCounts(
+                Map.of(doctorId, schedules), date, date);
         
         List<TimeSlotDTO> timeSlots = new ArrayList<>();
         
         for (Schedule schedule : schedules) {
             LocalDateTime startDateTime = LocalDateTime.of(date, schedule.getStartTime());
             LocalDateTime endDateTime = LocalDateTime.of(date, schedule.getEndTime());
-            int currentCount = countAppointmentsInRange(doctorId, startDateTime, endDateTime);
+            int currentCount = occupancy.getOrDefault(new AvailabilityEngine.BlockKey(schedule.getId(), date), 0);
             boolean available = currentCount < schedule.getMaxPatients();
             
             // 将2小时时段分成多个30分钟的时间段
@@ -119,6 +140,51 @@ public class ScheduleServiceImpl implements ScheduleService {
         return timeSlots;
     }
 
+    @Override
+    public List<TimeSlotDTO> getSlotGrid(Long doctorId, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new RuntimeException("日期范围不能为空");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("结束日期不能早于开始日期");
+        }
+        if (startDate.plusDays(MAX_GRID_DAYS - 1).isBefore(endDate)) {
+            throw new RuntimeException("查询范围不能超过" + MAX_GRID_DAYS + "天");
+        }
+        
+        // 排班取自索引，占用数一次分组查询取回，逐日展开为30分钟网格
+        Map<LocalDateTime, Integer> slotCounts = availabilityEngine.countBySlot(doctorId, startDate, endDate, SLOT_MINUTES);
+        List<TimeSlotDTO> grid = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            for (Schedule schedule : scheduleIndex.getSchedules(doctorId, date.getDayOfWeek())) {
+                LocalDateTime blockStart = LocalDateTime.of(date, schedule.getStartTime());
+                LocalDateTime blockEnd = LocalDateTime.of(date, schedule.getEndTime());
+                
+                List<TimeSlotDTO> blockSlots = new ArrayList<>();
+                int blockCount = 0;
+                for (LocalDateTime current = blockStart; !current.plusMinutes(SLOT_MINUTES).isAfter(blockEnd);
+                     current = current.plusMinutes(SLOT_MINUTES)) {
+                    TimeSlotDTO slot = new TimeSlotDTO();
+                    slot.setStartTime(current);
+                    slot.setEndTime(current.plusMinutes(SLOT_MINUTES));
+                    slot.setCurrentPatients(slotCounts.getOrDefault(current, 0));
+                    slot.setMaxPatients(schedule.getMaxPatients());
+                    slot.setIsWorkingTime(true);
+                    blockCount += slot.getCurrentPatients();
+                    blockSlots.add(slot);
+                }
+                
+                // 容量按排班时段整体计算
+                for (TimeSlotDTO slot : blockSlots) {
+                    slot.setBlockPatients(blockCount);
+                    slot.setAvailable(blockCount < schedule.getMaxPatients());
+                }
+                grid.addAll(blockSlots);
+            }
+        }
+        return grid;
+    }
+
     @Override
     public List<LocalDate> getAvailableDates(Long departmentId, Long doctorId, LocalDate startDate, LocalDate endDate) {
         if (departmentId == null) {
@@ -135,9 +201,9 @@ public class ScheduleServiceImpl implements ScheduleService {
         if (doctorId != null) {
             doctorIds = List.of(doctorId);
         } else {
-            doctorIds = doctorRepository.findByDepartment_Id(departmentId)
+            doctorIds = doctorService.getDoctorsByDepartment(departmentId)
                     .stream()
-                    .map(d -> d.getId())
+                    .map(DoctorDTO::getId)
                     .collect(Collectors.toList());
         }
 
@@ -145,52 +211,12 @@ public class ScheduleServiceImpl implements ScheduleService {
             return List.of();
         }
 
-        List<LocalDate> availableDates = new ArrayList<>();
-        LocalDate cursor = startDate;
-        while (!cursor.isAfter(endDate)) {
-            DayOfWeek dayOfWeek = cursor.getDayOfWeek();
-            boolean hasAvailability = false;
-
-            for (Long did : doctorIds) {
-                List<Schedule> schedules = scheduleRepository.findByDoctorIdAndDayOfWeek(did, dayOfWeek);
-                if (schedules.isEmpty()) continue;
-
-                for (Schedule schedule : schedules) {
-                    LocalDateTime startDateTime = LocalDateTime.of(cursor, schedule.getStartTime());
-                    LocalDateTime endDateTime = LocalDateTime.of(cursor, schedule.getEndTime());
-                    int currentCount = countAppointmentsInRange(did, startDateTime, endDateTime);
-                    if (currentCount < schedule.getMaxPatients()) {
-                        hasAvailability = true;
-                        break;
-                    }
-                }
-
-                if (hasAvailability) break;
-            }
-
-            if (hasAvailability) {
-                availableDates.add(cursor);
-            }
-            cursor = cursor.plusDays(1);
-        }
-
-        return availableDates;
+        return availabilityEngine.getAvailableDates(doctorIds, startDate, endDate);
     }
 
     @Override
     public boolean isWithinWorkingHours(Long doctorId, LocalDateTime appointmentTime) {
-        DayOfWeek dayOfWeek = appointmentTime.getDayOfWeek();
-        LocalTime time = appointmentTime.toLocalTime();
-        
-        List<Schedule> schedules = scheduleRepository.findByDoctorIdAndDayOfWeek(doctorId, dayOfWeek);
-        
-        for (Schedule schedule : schedules) {
-            if (!time.isBefore(schedule.getStartTime()) && time.isBefore(schedule.getEndTime())) {
-                return true;
-            }
-        }
-        
-        return false;
+        return scheduleIndex.findBlock(doctorId, appointmentTime).isPresent();
     }
 
     @Override
@@ -200,6 +226,11 @@ public class ScheduleServiceImpl implements ScheduleService {
         return max > 0 && current >= max;
     }
 
+    @Override
+    public Optional<Schedule> findScheduleForDateTime(Long doctorId, LocalDateTime appointmentTime) {
+        return scheduleIndex.findBlock(doctorId, appointmentTime);
+    }
+
     @Override
     public int getCurrentAppointmentCount(Long doctorId, LocalDateTime appointmentTime) {
         Optional<Schedule> scheduleOpt = findScheduleForDateTime(doctorId, appointmentTime);
@@ -216,7 +247,11 @@ public class ScheduleServiceImpl implements ScheduleService {
     @Override
     @Transactional
     public void deleteSchedule(Long scheduleId) {
-        scheduleRepository.deleteById(scheduleId);
+        scheduleRepository.findById(scheduleId).ifPresent(schedule -> {
+            scheduleRepository.delete(schedule);
+            scheduleIndex.invalidate(schedule.getDoctorId());
+        });
+        slotCapacityService.evictSchedule(scheduleId);
     }
 
     @Override
@@ -232,7 +267,12 @@ public class ScheduleServiceImpl implements ScheduleService {
             schedule.setMaxPatients(request.getMaxPatients());
         }
         
-        return scheduleRepository.save(schedule);
+        Schedule saved = scheduleRepository.save(schedule);
+        scheduleIndex.invalidate(saved.getDoctorId());
+        // 时段或容量变化后台账需要按新排班重新生成
+        slotCapacityService.evictSchedule(scheduleId);
+        slotCapacityService.materializeSchedule(saved);
+        return saved;
     }
 
     @Override
@@ -271,19 +311,9 @@ public class ScheduleServiceImpl implements ScheduleService {
                 .orElse(0);
     }
     
-    private Optional<Schedule> findScheduleForDateTime(Long doctorId, LocalDateTime appointmentTime) {
-        DayOfWeek dayOfWeek = appointmentTime.getDayOfWeek();
-        LocalTime time = appointmentTime.toLocalTime();
-        return scheduleRepository.findByDoctorIdAndDayOfWeek(doctorId, dayOfWeek).stream()
-                .filter(schedule -> !time.isBefore(schedule.getStartTime()) && time.isBefore(schedule.getEndTime()))
-                .findFirst();
-    }
-    
     private int countAppointmentsInRange(Long doctorId, LocalDateTime start, LocalDateTime end) {
-        return (int) appointmentRepository.findByDoctorIdAndAppointmentTimeBetween(doctorId, start, end).stream()
-                .filter(a -> a.getStatus() != com.hospital.entity.Appointment.AppointmentStatus.CANCELLED &&
-                             a.getStatus() != com.hospital.entity.Appointment.AppointmentStatus.EXPIRED)
-                .count();
+        // 时段按左闭右开计算，与号源台账初始化口径一致
+        return (int) appointmentRepository.countActiveByDoctorIdAndTimeRange(doctorId, start, end);
     }
 }
 
@@ -0,0 +1,103 @@
+package com.hospital.service;
+
+import com.hospital.dto.AppointmentQueueDTO;
+import com.hospital.entity.Appointment;
+import com.hospital.entity.Schedule;
+import com.hospital.event.AppointmentStatusChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按医生统计单个患者的就诊耗时，用于估算候诊等待时间。
+ * 耗时取同一医生相邻两次完成就诊的间隔，以指数滑动平均累计，每位医生只保存常数大小的状态；
+ * 尚无样本时按排班时长除以容量估算
+ */
+@Component
+public class ServiceTimeEstimator {
+
+    @Value("${booking.eta.smoothing:0.2}")
+    private Double smoothing;
+
+    @Value("${booking.eta.max-gap-minutes:60}")
+    private Long maxGapMinutes;
+
+    private final Map<Long, ServiceTimeStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 预约完成提交后更新医生的就诊耗时统计
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        Appointment appointment = event.appointment();
+        if (appointment.getStatus() != Appointment.AppointmentStatus.COMPLETED) {
+            return;
+        }
+        LocalDateTime completedAt = appointment.getUpdatedAt() != null ? appointment.getUpdatedAt() : LocalDateTime.now();
+        stats.computeIfAbsent(appointment.getDoctorId(), id -> new ServiceTimeStats())
+                .record(completedAt, smoothing, maxGapMinutes);
+    }
+
+    /**
+     * 医生的平均就诊分钟数
+     */
+    public double averageServiceMinutes(Schedule schedule) {
+        ServiceTimeStats doctorStats = stats.get(schedule.getDoctorId());
+        Double average = doctorStats != null ? doctorStats.average() : null;
+        if (average != null) {
+            return average;
+        }
+        long blockMinutes = Duration.between(schedule.getStartTime(), schedule.getEndTime()).toMinutes();
+        return (double) blockMinutes / Math.max(1, schedule.getMaxPatients());
+    }
+
+    /**
+     * 为按顺序排列的队列项填充预计等待时间：等待分钟数 = 前面未完成人数 × 平均就诊分钟数，
+     * 起算时间为当前时间与时段开始时间中较晚者；aheadOffset 为队列之外排在前面的人数（如正在就诊的患者）
+     */
+    public void applyEstimates(List<AppointmentQueueDTO> queue, Schedule schedule, LocalDateTime blockStart, int aheadOffset) {
+        double average = averageServiceMinutes(schedule);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime origin = now.isAfter(blockStart) ? now : blockStart;
+        int ahead = aheadOffset;
+        for (AppointmentQueueDTO entry : queue) {
+            if (entry.getStatus() == Appointment.AppointmentStatus.COMPLETED) {
+                continue;
+            }
+            int waitMinutes = (int) Math.round(ahead * average);
+            entry.setEstimatedWaitMinutes(waitMinutes);
+            entry.setEstimatedStartTime(origin.plusMinutes(waitMinutes));
+            ahead++;
+        }
+    }
+
+    private static class ServiceTimeStats {
+        private LocalDateTime lastCompletedAt;
+        private Double average;
+
+        private synchronized void record(LocalDateTime completedAt, double smoothing, long maxGapMinutes) {
+            if (lastCompletedAt != null && completedAt.isAfter(lastCompletedAt)
+                    && completedAt.toLocalDate().equals(lastCompletedAt.toLocalDate())) {
+                double gap = Duration.between(lastCompletedAt, completedAt).toSeconds() / 60.0;
+                // 间隔过长视为医生空闲，不计入样本
+                if (gap <= maxGapMinutes) {
+                    average = average == null ? gap : smoothing * gap + (1 - smoothing) * average;
+                }
+            }
+            if (lastCompletedAt == null || completedAt.isAfter(lastCompletedAt)) {
+                lastCompletedAt = completedAt;
+            }
+        }
+
+        private synchronized Double average() {
+            return average;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.hospital.service;
+
+import com.hospital.entity.Schedule;
+import com.hospital.entity.SlotCapacity;
+import com.hospital.repository.ScheduleRepository;
+import com.hospital.repository.SlotCapacityRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 号源容量台账：预约准入通过单行条件更新完成，避免并发预约超出时段容量。
+ * 台账行按排班预先生成到未来若干周，作为可预约日历供查询直接读取
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotCapacityService {
+
+    private final SlotCapacityRepository slotCapacityRepository;
+    private final ScheduleRepository scheduleRepository;
+
+    @Value("${booking.calendar.horizon-weeks:4}")
+    private Integer horizonWeeks;
+
+    /**
+     * 尝试在指定排班时段的某一天占用一个号源，已满员返回 false
+     */
+    @Transactional
+    public boolean tryAcquire(Schedule schedule, LocalDate date) {
+        if (slotCapacityRepository.incrementIfAvailable(schedule.getId(), date) == 1) {
+            return true;
+        }
+        if (slotCapacityRepository.existsByScheduleIdAndSlotDate(schedule.getId(), date)) {
+            return false;
+        }
+
+        // 台账行尚不存在：按现有有效预约数初始化后重试
+        initialize(schedule, date);
+        return slotCapacityRepository.incrementIfAvailable(schedule.getId(), date) == 1;
+    }
+
+    /**
+     * 批量占用号源：锁定台账行后按剩余容量分配，返回实际占用的数量
+     */
+    @Transactional
+    public int tryAcquire(Schedule schedule, LocalDate date, int count) {
+        SlotCapacity capacity = slotCapacityRepository.findForUpdate(schedule.getId(), date)
+                .orElseGet(() -> {
+                    initialize(schedule, date);
+                    return slotCapacityRepository.findForUpdate(schedule.getId(), date)
+                            .orElseThrow(() -> new RuntimeException("号源台账初始化失败"));
+                });
+
+        int granted = Math.max(0, Math.min(count, capacity.getMaxPatients() - capacity.getBookedCount()));
+        if (granted > 0) {
+            capacity.setBookedCount(capacity.getBookedCount() + granted);
+        }
+        return granted;
+    }
+
+    /**
+     * 读取指定排班时段某一天的已预约人数（台账不存在时先初始化）
+     */
+    @Transactional
+    public int getBookedCount(Schedule schedule, LocalDate date) {
+        return slotCapacityRepository.findByScheduleIdAndSlotDate(schedule.getId(), date)
+                .or(() -> {
+                    initialize(schedule, date);
+                    return slotCapacityRepository.findByScheduleIdAndSlotDate(schedule.getId(), date);
+                })
+                .map(SlotCapacity::getBookedCount)
+                .orElse(0);
+    }
+
+    /**
+     * 释放一个号源（取消预约时调用）
+     */
+    @Transactional
+    public void release(Schedule schedule, LocalDate date) {
+        slotCapacityRepository.decrement(schedule.getId(), date);
+    }
+
+    /**
+     * 排班变更或删除后清除该排班的台账，下次预约时按实际预约数重新初始化
+     */
+    @Transactional
+    public void evictSchedule(Long scheduleId) {
+        slotCapacityRepository.deleteByScheduleId(scheduleId);
+    }
+
+    /**
+     * 清除医生的全部台账
+     */
+    @Transactional
+    public void evictDoctor(Long doctorId) {
+        slotCapacityRepository.deleteByDoctorId(doctorId);
+    }
+
+    /**
+     * 为排班生成日历范围内（今天起若干周）缺失的台账行
+     */
+    @Transactional
+    public int materializeSchedule(Schedule schedule) {
+        int created = 0;
+        LocalDate today = LocalDate.now();
+        LocalDate horizon = today.plusWeeks(horizonWeeks);
+        for (LocalDate date = today; date.isBefore(horizon); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == schedule.getDayOfWeek()) {
+                created += initialize(schedule, date);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 滚动日历：清理过去日期的台账，并把全部排班的台账延伸到新的日历范围
+     */
+    @Transactional
+    public void refreshCalendar() {
+        int purged = slotCapacityRepository.deleteBySlotDateBefore(LocalDate.now());
+        int created = 0;
+        for (Schedule schedule : scheduleRepository.findAll()) {
+            created += materializeSchedule(schedule);
+        }
+        log.info("可预约日历已刷新: 新增 {} 行, 清理 {} 行", created, purged);
+    }
+
+    private int initialize(Schedule schedule, LocalDate date) {
+        return slotCapacityRepository.initializeIfAbsent(
+                schedule.getId(),
+                schedule.getDoctorId(),
+                date,
+                schedule.getMaxPatients(),
+                LocalDateTime.of(date, schedule.getStartTime()),
+                LocalDateTime.of(date, schedule.getEndTime()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.hospital.service;
+
+import com.hospital.dto.AppointmentRequest;
+import com.hospital.entity.WaitlistEntry;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface WaitlistService {
+
+    // 登记候补（仅在该时间段已满员时允许）
+    WaitlistEntry joinWaitlist(AppointmentRequest request);
+
+    // 获取患者的候补记录
+    List<WaitlistEntry> getWaitlistByPatientId(Long patientId);
+
+    // 取消候补
+    WaitlistEntry cancelWaitlistEntry(Long id);
+
+    // 按登记顺序将下一位候补患者转为正式预约
+    void promoteNext(Long scheduleId, LocalDate slotDate);
+
+    // 恢复长时间停留在转正处理中的候补，返回处理条数
+    int recoverStalePromotions();
+
+    // 将就诊时间已过的候补标记为过期
+    int expireStaleEntries();
+}
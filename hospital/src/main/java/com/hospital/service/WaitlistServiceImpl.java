@@ -0,0 +1,235 @@
+package com.hospital.service;
+
+import com.hospital.dto.AppointmentRequest;
+import com.hospital.entity.Appointment;
+import com.hospital.entity.Schedule;
+import com.hospital.entity.WaitlistEntry;
+import com.hospital.event.AppointmentStatusChangedEvent;
+import com.hospital.repository.AppointmentRepository;
+import com.hospital.repository.PatientRepository;
+import com.hospital.repository.ScheduleRepository;
+import com.hospital.repository.UserRepository;
+import com.hospital.repository.WaitlistEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitlistServiceImpl implements WaitlistService {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final PatientRepository patientRepository;
+    private final UserRepository userRepository;
+    private final AppointmentService appointmentService;
+    private final ScheduleService scheduleService;
+    private final SlotCapacityService slotCapacityService;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${booking.waitlist.promoting-timeout-minutes:10}")
+    private Long promotingTimeoutMinutes;
+
+    @Override
+    @Transactional
+    public WaitlistEntry joinWaitlist(AppointmentRequest request) {
+        if (request.getPatientId() == null || request.getDoctorId() == null || request.getAppointmentTime() == null) {
+            throw new RuntimeException("预约信息不完整");
+        }
+        if (request.getAppointmentTime().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("预约时间已过，无法登记候补");
+        }
+
+        Schedule schedule = scheduleService.findScheduleForDateTime(request.getDoctorId(), request.getAppointmentTime())
+                .orElseThrow(() -> new RuntimeException("该时间段不在医生的工作时间内，请选择医生的工作时间段"));
+        LocalDate slotDate = request.getAppointmentTime().toLocalDate();
+        if (!isFull(schedule, slotDate)) {
+            throw new RuntimeException("该时间段仍有空余号源，请直接预约");
+        }
+        if (waitlistEntryRepository.existsByPatientIdAndScheduleIdAndSlotDateAndStatus(
+                request.getPatientId(), schedule.getId(), slotDate, WaitlistEntry.WaitlistStatus.WAITING)) {
+            throw new RuntimeException("您已在该时间段的候补队列中");
+        }
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setPatientId(request.getPatientId());
+        entry.setDoctorId(request.getDoctorId());
+        entry.setScheduleId(schedule.getId());
+        entry.setSlotDate(slotDate);
+        entry.setAppointmentTime(request.getAppointmentTime());
+        entry.setNotes(request.getNotes());
+        entry.setStatus(WaitlistEntry.WaitlistStatus.WAITING);
+        return waitlistEntryRepository.save(entry);
+    }
+
+    @Override
+    public List<WaitlistEntry> getWaitlistByPatientId(Long patientId) {
+        return waitlistEntryRepository.findByPatientIdOrderByCreatedAtDesc(patientId);
+    }
+
+    @Override
+    @Transactional
+    public WaitlistEntry cancelWaitlistEntry(Long id) {
+        WaitlistEntry entry = waitlistEntryRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("候补记录不存在"));
+        if (waitlistEntryRepository.updateStatus(id, WaitlistEntry.WaitlistStatus.WAITING,
+                WaitlistEntry.WaitlistStatus.CANCELLED) == 0) {
+            throw new RuntimeException("只有候补中的记录可以取消");
+        }
+        entry.setStatus(WaitlistEntry.WaitlistStatus.CANCELLED);
+        return entry;
+    }
+
+    /**
+     * 预约取消并提交后异步触发候补转正，不阻塞取消请求
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        Appointment appointment = event.appointment();
+        if (appointment.getStatus() != Appointment.AppointmentStatus.CANCELLED) {
+            return;
+        }
+        try {
+            scheduleService.findScheduleForDateTime(appointment.getDoctorId(), appointment.getAppointmentTime())
+                    .ifPresent(schedule -> promoteNext(schedule.getId(), appointment.getAppointmentTime().toLocalDate()));
+        } catch (Exception e) {
+            log.error("候补转正失败: appointmentId={}", appointment.getId(), e);
+        }
+    }
+
+    @Override
+    public void promoteNext(Long scheduleId, LocalDate slotDate) {
+        Optional<WaitlistEntry> next;
+        while ((next = waitlistEntryRepository.findFirstByScheduleIdAndSlotDateAndStatusOrderByIdAsc(
+                scheduleId, slotDate, WaitlistEntry.WaitlistStatus.WAITING)).isPresent()) {
+            WaitlistEntry entry = next.get();
+            if (entry.getAppointmentTime().isBefore(LocalDateTime.now())) {
+                transitStatus(entry, WaitlistEntry.WaitlistStatus.WAITING, WaitlistEntry.WaitlistStatus.EXPIRED);
+                continue;
+            }
+            // 先抢占候补记录，避免并发取消事件重复转正同一位患者
+            if (!transitStatus(entry, WaitlistEntry.WaitlistStatus.WAITING, WaitlistEntry.WaitlistStatus.PROMOTING)) {
+                continue;
+            }
+
+            Appointment appointment;
+            try {
+                // 复用正常预约的准入校验（工作时间、号源台账）
+                appointment = appointmentService.createAppointment(toRequest(entry));
+            } catch (Exception e) {
+                Schedule schedule = scheduleRepository.findById(scheduleId).orElse(null);
+                if (schedule != null && isFull(schedule, slotDate)) {
+                    // 空出的号源已被其他预约占用，放回队首等待下一次取消
+                    transitStatus(entry, WaitlistEntry.WaitlistStatus.PROMOTING, WaitlistEntry.WaitlistStatus.WAITING);
+                    return;
+                }
+                log.warn("候补转正失败，跳过该记录: waitlistId={}, error={}", entry.getId(), e.getMessage());
+                transitStatus(entry, WaitlistEntry.WaitlistStatus.PROMOTING, WaitlistEntry.WaitlistStatus.CANCELLED);
+                continue;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                entry.setStatus(WaitlistEntry.WaitlistStatus.PROMOTED);
+                entry.setAppointmentId(appointment.getId());
+                waitlistEntryRepository.save(entry);
+            });
+            log.info("候补转正成功: waitlistId={}, appointmentId={}", entry.getId(), appointment.getId());
+            notifyPatient(entry, appointment);
+            return;
+        }
+    }
+
+    /**
+     * 转正途中进程退出会使候补停留在 PROMOTING：预约已创建的补记为已转正，
+     * 否则放回候补队列并重新尝试转正
+     */
+    @Override
+    public int recoverStalePromotions() {
+        List<WaitlistEntry> stale = waitlistEntryRepository.findByStatusAndUpdatedAtBefore(
+                WaitlistEntry.WaitlistStatus.PROMOTING, LocalDateTime.now().minusMinutes(promotingTimeoutMinutes));
+        for (WaitlistEntry entry : stale) {
+            Optional<Appointment> created = appointmentRepository.findFirstByPatientIdAndDoctorIdAndAppointmentTimeAndStatusIn(
+                    entry.getPatientId(), entry.getDoctorId(), entry.getAppointmentTime(),
+                    List.of(Appointment.AppointmentStatus.PENDING, Appointment.AppointmentStatus.CONFIRMED));
+            if (created.isPresent()) {
+                transactionTemplate.executeWithoutResult(status ->
+                        waitlistEntryRepository.markPromoted(entry.getId(), created.get().getId()));
+                log.info("候补转正已恢复为已转正: waitlistId={}, appointmentId={}", entry.getId(), created.get().getId());
+                continue;
+            }
+            if (transitStatus(entry, WaitlistEntry.WaitlistStatus.PROMOTING, WaitlistEntry.WaitlistStatus.WAITING)) {
+                log.info("候补转正已放回队列: waitlistId={}", entry.getId());
+                try {
+                    promoteNext(entry.getScheduleId(), entry.getSlotDate());
+                } catch (Exception e) {
+                    log.error("候补转正失败: waitlistId={}", entry.getId(), e);
+                }
+            }
+        }
+        return stale.size();
+    }
+
+    @Override
+    @Transactional
+    public int expireStaleEntries() {
+        return waitlistEntryRepository.expireBefore(LocalDateTime.now());
+    }
+
+    private boolean isFull(Schedule schedule, LocalDate slotDate) {
+        return slotCapacityService.getBookedCount(schedule, slotDate) >= schedule.getMaxPatients();
+    }
+
+    private boolean transitStatus(WaitlistEntry entry, WaitlistEntry.WaitlistStatus expected,
+                                  WaitlistEntry.WaitlistStatus target) {
+        Integer updated = transactionTemplate.execute(status ->
+                waitlistEntryRepository.updateStatus(entry.getId(), expected, target));
+        if (updated == null || updated == 0) {
+            return false;
+        }
+        entry.setStatus(target);
+        return true;
+    }
+
+    private AppointmentRequest toRequest(WaitlistEntry entry) {
+        AppointmentRequest request = new AppointmentRequest();
+        request.setPatientId(entry.getPatientId());
+        request.setDoctorId(entry.getDoctorId());
+        request.setAppointmentTime(entry.getAppointmentTime());
+        request.setNotes(entry.getNotes());
+        return request;
+    }
+
+    private void notifyPatient(WaitlistEntry entry, Appointment appointment) {
+        patientRepository.findById(entry.getPatientId())
+                .flatMap(patient -> userRepository.findById(patient.getUserId()))
+                .filter(user -> StringUtils.hasText(user.getEmail()))
+                .ifPresent(user -> emailService.sendEmail(
+                        user.getEmail(),
+                        "【医院管理系统】候补预约成功通知",
+                        String.format(
+                                "您好！\n\n" +
+                                        "您候补的 %s 就诊号源已有空余，系统已为您自动预约（预约编号：%d）。\n\n" +
+                                        "如无法按时就诊，请及时登录系统取消预约。",
+                                appointment.getAppointmentTime().format(TIME_FORMATTER), appointment.getId()
+                        )));
+    }
+}
@@ -88,8 +88,10 @@ CREATE TABLE `appointment` (
   `created_at` DATETIME(6) DEFAULT NULL,
   `updated_at` DATETIME(6) DEFAULT NULL,
   PRIMARY KEY (`id`),
-  KEY `idx_appointment_doctor_id` (`doctor_id`),
-  KEY `idx_appointment_patient_id` (`patient_id`),
+  KEY `idx_appointment_doctor_time_status` (`doctor_id`, `appointment_time`, `status`),
+  KEY `idx_appointment_doctor_status_time` (`doctor_id`, `status`, `appointment_time`),
+  KEY `idx_appointment_patient_time` (`patient_id`, `appointment_time`),
+  KEY `idx_appointment_patient_status_time` (`patient_id`, `status`, `appointment_time`),
   KEY `idx_appointment_time` (`appointment_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -140,6 +142,50 @@ CREATE TABLE `schedule_adjustment_request` (
   KEY `idx_adjustment_status` (`status`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='排班调整申请表';
 
+CREATE TABLE `slot_capacity` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '台账ID',
+  `schedule_id` BIGINT NOT NULL COMMENT '排班ID',
+  `doctor_id` BIGINT NOT NULL COMMENT '医生ID',
+  `slot_date` DATE NOT NULL COMMENT '就诊日期',
+  `booked_count` INT NOT NULL DEFAULT 0 COMMENT '已预约人数',
+  `max_patients` INT NOT NULL COMMENT '最大就诊人数',
+  `created_at` DATETIME(6) DEFAULT NULL COMMENT '创建时间',
+  `updated_at` DATETIME(6) DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_slot_capacity_schedule_date` (`schedule_id`, `slot_date`),
+  KEY `idx_slot_capacity_doctor_date` (`doctor_id`, `slot_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='号源容量台账表';
+
+CREATE TABLE `appointment_waitlist` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '候补ID',
+  `patient_id` BIGINT NOT NULL COMMENT '患者ID',
+  `doctor_id` BIGINT NOT NULL COMMENT '医生ID',
+  `schedule_id` BIGINT NOT NULL COMMENT '排班ID',
+  `slot_date` DATE NOT NULL COMMENT '就诊日期',
+  `appointment_time` DATETIME(6) NOT NULL COMMENT '期望就诊时间',
+  `notes` VARCHAR(500) DEFAULT NULL COMMENT '备注',
+  `status` ENUM('CANCELLED','EXPIRED','PROMOTED','PROMOTING','WAITING') NOT NULL COMMENT '候补状态',
+  `appointment_id` BIGINT DEFAULT NULL COMMENT '转正后的预约ID',
+  `created_at` DATETIME(6) DEFAULT NULL COMMENT '创建时间',
+  `updated_at` DATETIME(6) DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_waitlist_slot_status` (`schedule_id`, `slot_date`, `status`),
+  KEY `idx_waitlist_patient_id` (`patient_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='预约候补表';
+
+CREATE TABLE `appointment_daily_rollup` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '汇总ID',
+  `stat_date` DATE NOT NULL COMMENT '就诊日期',
+  `doctor_id` BIGINT NOT NULL COMMENT '医生ID',
+  `status` ENUM('CANCELLED','COMPLETED','CONFIRMED','EXPIRED','PENDING') NOT NULL COMMENT '预约状态',
+  `appointment_count` BIGINT NOT NULL DEFAULT 0 COMMENT '预约数量',
+  `created_at` DATETIME(6) DEFAULT NULL COMMENT '创建时间',
+  `updated_at` DATETIME(6) DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_rollup_date_doctor_status` (`stat_date`, `doctor_id`, `status`),
+  KEY `idx_rollup_doctor_date` (`doctor_id`, `stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='预约日汇总表';
+
 -- =========================
 -- Seed data (optional)
 -- =========================